@@ -20,6 +20,10 @@ create table WFSTP_STAGE (
     EDITOR_SCREEN_CONSTRUCTOR text,
     SCREEN_CONSTRUCTOR text,
     DIRECTION_VARIABLES text,
+    EXECUTION_TIMEOUT_SEC integer,
+    FAIL_ON_EXECUTION_TIMEOUT boolean,
+    MAX_CONCURRENT_EXECUTIONS integer,
+    EXECUTIONS_PER_SECOND integer,
     --
     primary key (ID)
 )^
@@ -40,6 +44,10 @@ create table WFSTP_STEP (
     STAGE_ID uuid not null,
     TIMEOUT_SEC integer,
     REPEAT_SEC integer,
+    RETRY_MULTIPLIER double precision,
+    RETRY_JITTER double precision,
+    RETRY_MAX_DELAY_SEC integer,
+    RETRY_MAX_ATTEMPTS integer,
     WORKFLOW_ID uuid not null,
     --
     primary key (ID)
@@ -105,6 +113,15 @@ create table WFSTP_WORKFLOW_INSTANCE (
     END_DATE timestamp,
     ERROR_ text,
     ERROR_IN_TASK boolean,
+    ERROR_REF_ID uuid,
+    NEXT_WAKEUP_AT timestamp,
+    CURRENT_TASK_ID uuid,
+    CURRENT_STEP_ID uuid,
+    LEASE_OWNER varchar(255),
+    LEASE_EXPIRES timestamp,
+    LEASE_TOKEN bigint,
+    ATTEMPTS integer,
+    STALLED boolean,
     --
     primary key (ID)
 )^
@@ -277,3 +294,93 @@ create table WFSTP_TASK_PERFORMERS_LINK (
     primary key (TASK_ID, PERFORMER_ID)
 )^
 -- end WFSTP_TASK_PERFORMERS_LINK
+-- begin WFSTP_WORKFLOW_INSTANCE_ARCH
+create table WFSTP_WORKFLOW_INSTANCE_ARCH (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    UPDATE_TS timestamp,
+    UPDATED_BY varchar(50),
+    DELETE_TS timestamp,
+    DELETED_BY varchar(50),
+    --
+    WORKFLOW_ID uuid not null,
+    ENTITY_NAME varchar(255) not null,
+    ENTITY_ID varchar(255) not null,
+    CONTEXT text,
+    START_DATE timestamp,
+    END_DATE timestamp not null,
+    ERROR_ text,
+    ERROR_IN_TASK boolean,
+    ERROR_REF_ID uuid,
+    CURRENT_TASK_ID uuid,
+    CURRENT_STEP_ID uuid,
+    ARCHIVE_TS timestamp not null,
+    --
+    primary key (ID, END_DATE)
+)^
+-- end WFSTP_WORKFLOW_INSTANCE_ARCH
+-- begin WFSTP_WORKFLOW_INSTANCE_TASK_ARCH
+create table WFSTP_WORKFLOW_INSTANCE_TASK_ARCH (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    UPDATE_TS timestamp,
+    UPDATED_BY varchar(50),
+    DELETE_TS timestamp,
+    DELETED_BY varchar(50),
+    --
+    INSTANCE_ID uuid not null,
+    STEP_ID uuid not null,
+    START_DATE timestamp,
+    END_DATE timestamp,
+    --
+    primary key (ID)
+)^
+-- end WFSTP_WORKFLOW_INSTANCE_TASK_ARCH
+-- begin WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH
+create table WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    UPDATE_TS timestamp,
+    UPDATED_BY varchar(50),
+    DELETE_TS timestamp,
+    DELETED_BY varchar(50),
+    --
+    INSTANCE_ID uuid,
+    TASK_ID uuid,
+    AUTHOR_ID uuid,
+    COMMENT text,
+    ATTACHMENT_ID uuid,
+    --
+    primary key (ID)
+)^
+-- end WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH
+-- begin WFSTP_TASK_PERFORMERS_LINK_ARCH
+create table WFSTP_TASK_PERFORMERS_LINK_ARCH (
+    TASK_ID uuid,
+    PERFORMER_ID uuid,
+    primary key (TASK_ID, PERFORMER_ID)
+)^
+-- end WFSTP_TASK_PERFORMERS_LINK_ARCH
+-- begin WFSTP_WORKFLOW_ERROR
+create table WFSTP_WORKFLOW_ERROR (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    --
+    HASH varchar(64) not null,
+    MESSAGE text,
+    TRACE bytea,
+    FIRST_SEEN timestamp not null,
+    LAST_SEEN timestamp not null,
+    OCCURRENCES bigint not null,
+    --
+    primary key (ID)
+)^
+-- end WFSTP_WORKFLOW_ERROR
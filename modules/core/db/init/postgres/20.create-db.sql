@@ -13,6 +13,11 @@ create index IDX_WFSTP_STEP_DIRECTION_ON_TO on WFSTP_STEP_DIRECTION (TO_ID)^
 -- begin WFSTP_WORKFLOW_INSTANCE
 alter table WFSTP_WORKFLOW_INSTANCE add constraint FK_WFSTP_WORKFLOW_INSTANCE_ON_WORKFLOW foreign key (WORKFLOW_ID) references WFSTP_WORKFLOW(ID)^
 create index IDX_WFSTP_WORKFLOW_INSTANCE_ON_WORKFLOW on WFSTP_WORKFLOW_INSTANCE (WORKFLOW_ID)^
+create index IDX_WFSTP_WORKFLOW_INSTANCE_NEXT_WAKEUP_AT on WFSTP_WORKFLOW_INSTANCE (NEXT_WAKEUP_AT) where NEXT_WAKEUP_AT is not null and END_DATE is null and ERROR_ is null and DELETE_TS is null^
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ENTITY on WFSTP_WORKFLOW_INSTANCE (ENTITY_NAME, ENTITY_ID, WORKFLOW_ID, CREATE_TS) where DELETE_TS is null^
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ACTIVE_ENTITY on WFSTP_WORKFLOW_INSTANCE (ENTITY_NAME, ENTITY_ID, WORKFLOW_ID, CREATE_TS) where END_DATE is null and DELETE_TS is null^
+alter table WFSTP_WORKFLOW_INSTANCE add constraint FK_WFSTP_WORKFLOW_INSTANCE_ON_ERROR_REF foreign key (ERROR_REF_ID) references WFSTP_WORKFLOW_ERROR(ID)^
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ON_ERROR_REF on WFSTP_WORKFLOW_INSTANCE (ERROR_REF_ID)^
 -- end WFSTP_WORKFLOW_INSTANCE
 -- begin WFSTP_WORKFLOW_INSTANCE_COMMENT
 alter table WFSTP_WORKFLOW_INSTANCE_COMMENT add constraint FK_WFSTP_WORKFLOW_INSTANCE_COMMENT_ON_INSTANCE foreign key (INSTANCE_ID) references WFSTP_WORKFLOW_INSTANCE(ID)^
@@ -29,6 +34,8 @@ alter table WFSTP_WORKFLOW_INSTANCE_TASK add constraint FK_WFSTP_WORKFLOW_INSTAN
 alter table WFSTP_WORKFLOW_INSTANCE_TASK add constraint FK_WFSTP_WORKFLOW_INSTANCE_TASK_ON_STEP foreign key (STEP_ID) references WFSTP_STEP(ID)^
 create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_ON_INSTANCE on WFSTP_WORKFLOW_INSTANCE_TASK (INSTANCE_ID)^
 create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_ON_STEP on WFSTP_WORKFLOW_INSTANCE_TASK (STEP_ID)^
+create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_INSTANCE_CREATE_TS on WFSTP_WORKFLOW_INSTANCE_TASK (INSTANCE_ID, CREATE_TS) where DELETE_TS is null^
+create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_OPEN on WFSTP_WORKFLOW_INSTANCE_TASK (STEP_ID, CREATE_TS) where END_DATE is null and DELETE_TS is null^
 -- end WFSTP_WORKFLOW_INSTANCE_TASK
 -- begin WFSTP_STAGE_ACTORS_LINK
 alter table WFSTP_STAGE_ACTORS_LINK add constraint FK_STAACT_ON_STAGE foreign key (STAGE_ID) references WFSTP_STAGE(ID)^
@@ -57,3 +64,16 @@ alter table WFSTP_STAGE_VIEWERS_ROLES_LINK add constraint FK_STAVIEROL_ON_ROLE f
 alter table WFSTP_TASK_PERFORMERS_LINK add constraint FK_TASPER_ON_WORKFLOW_INSTANCE_TASK foreign key (TASK_ID) references WFSTP_WORKFLOW_INSTANCE_TASK(ID)^
 alter table WFSTP_TASK_PERFORMERS_LINK add constraint FK_TASPER_ON_USER foreign key (PERFORMER_ID) references SEC_USER(ID)^
 -- end WFSTP_TASK_PERFORMERS_LINK
+-- begin WFSTP_WORKFLOW_INSTANCE_ARCH
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ARCH_ENTITY on WFSTP_WORKFLOW_INSTANCE_ARCH (ENTITY_NAME, ENTITY_ID)^
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ARCH_END_DATE on WFSTP_WORKFLOW_INSTANCE_ARCH (END_DATE)^
+-- end WFSTP_WORKFLOW_INSTANCE_ARCH
+-- begin WFSTP_WORKFLOW_INSTANCE_TASK_ARCH
+create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_ARCH_ON_INSTANCE on WFSTP_WORKFLOW_INSTANCE_TASK_ARCH (INSTANCE_ID)^
+-- end WFSTP_WORKFLOW_INSTANCE_TASK_ARCH
+-- begin WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH
+create index IDX_WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH_ON_INSTANCE on WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH (INSTANCE_ID)^
+-- end WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH
+-- begin WFSTP_WORKFLOW_ERROR
+create unique index IDX_WFSTP_WORKFLOW_ERROR_UNIQ_HASH on WFSTP_WORKFLOW_ERROR (HASH)^
+-- end WFSTP_WORKFLOW_ERROR
@@ -0,0 +1,16 @@
+-- deduplicated workflow failures, instances keep short message and reference to the signature
+create table WFSTP_WORKFLOW_ERROR (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    --
+    HASH varchar(64) not null,
+    MESSAGE text,
+    TRACE bytea,
+    FIRST_SEEN timestamp not null,
+    LAST_SEEN timestamp not null,
+    OCCURRENCES bigint not null,
+    --
+    primary key (ID)
+);
@@ -0,0 +1,70 @@
+-- archive of finished workflow instances, foreign keys are omitted to allow independent retention.
+-- Instances archive can be recreated as "partition by range (END_DATE)", monthly partitions are created by the archiver.
+create table WFSTP_WORKFLOW_INSTANCE_ARCH (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    UPDATE_TS timestamp,
+    UPDATED_BY varchar(50),
+    DELETE_TS timestamp,
+    DELETED_BY varchar(50),
+    --
+    WORKFLOW_ID uuid not null,
+    ENTITY_NAME varchar(255) not null,
+    ENTITY_ID varchar(255) not null,
+    CONTEXT text,
+    START_DATE timestamp,
+    END_DATE timestamp not null,
+    ERROR_ text,
+    ERROR_IN_TASK boolean,
+    CURRENT_TASK_ID uuid,
+    CURRENT_STEP_ID uuid,
+    ARCHIVE_TS timestamp not null,
+    --
+    primary key (ID, END_DATE)
+);
+create table WFSTP_WORKFLOW_INSTANCE_TASK_ARCH (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    UPDATE_TS timestamp,
+    UPDATED_BY varchar(50),
+    DELETE_TS timestamp,
+    DELETED_BY varchar(50),
+    --
+    INSTANCE_ID uuid not null,
+    STEP_ID uuid not null,
+    START_DATE timestamp,
+    END_DATE timestamp,
+    --
+    primary key (ID)
+);
+create table WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH (
+    ID uuid,
+    VERSION integer not null,
+    CREATE_TS timestamp,
+    CREATED_BY varchar(50),
+    UPDATE_TS timestamp,
+    UPDATED_BY varchar(50),
+    DELETE_TS timestamp,
+    DELETED_BY varchar(50),
+    --
+    INSTANCE_ID uuid,
+    TASK_ID uuid,
+    AUTHOR_ID uuid,
+    COMMENT text,
+    ATTACHMENT_ID uuid,
+    --
+    primary key (ID)
+);
+create table WFSTP_TASK_PERFORMERS_LINK_ARCH (
+    TASK_ID uuid,
+    PERFORMER_ID uuid,
+    primary key (TASK_ID, PERFORMER_ID)
+);
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ARCH_ENTITY on WFSTP_WORKFLOW_INSTANCE_ARCH (ENTITY_NAME, ENTITY_ID);
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ARCH_END_DATE on WFSTP_WORKFLOW_INSTANCE_ARCH (END_DATE);
+create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_ARCH_ON_INSTANCE on WFSTP_WORKFLOW_INSTANCE_TASK_ARCH (INSTANCE_ID);
+create index IDX_WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH_ON_INSTANCE on WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH (INSTANCE_ID);
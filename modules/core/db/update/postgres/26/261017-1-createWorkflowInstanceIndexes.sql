@@ -0,0 +1,11 @@
+-- workflow instances lookup by entity (getWorkflowInstance*, isProcessing)
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ENTITY on WFSTP_WORKFLOW_INSTANCE (ENTITY_NAME, ENTITY_ID, WORKFLOW_ID, CREATE_TS)
+where DELETE_TS is null;
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ACTIVE_ENTITY on WFSTP_WORKFLOW_INSTANCE (ENTITY_NAME, ENTITY_ID, WORKFLOW_ID, CREATE_TS)
+where END_DATE is null and DELETE_TS is null;
+-- workflow instance tasks history
+create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_INSTANCE_CREATE_TS on WFSTP_WORKFLOW_INSTANCE_TASK (INSTANCE_ID, CREATE_TS)
+where DELETE_TS is null;
+-- not finished tasks by step
+create index IDX_WFSTP_WORKFLOW_INSTANCE_TASK_OPEN on WFSTP_WORKFLOW_INSTANCE_TASK (STEP_ID, CREATE_TS)
+where END_DATE is null and DELETE_TS is null;
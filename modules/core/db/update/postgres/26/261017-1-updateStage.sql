@@ -0,0 +1,2 @@
+alter table WFSTP_STAGE add column EXECUTION_TIMEOUT_SEC integer ;
+alter table WFSTP_STAGE add column FAIL_ON_EXECUTION_TIMEOUT boolean ;
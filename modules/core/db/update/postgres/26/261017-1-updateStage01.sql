@@ -0,0 +1,2 @@
+alter table WFSTP_STAGE add column MAX_CONCURRENT_EXECUTIONS integer ;
+alter table WFSTP_STAGE add column EXECUTIONS_PER_SECOND integer ;
@@ -0,0 +1,4 @@
+alter table WFSTP_STEP add column RETRY_MULTIPLIER double precision ;
+alter table WFSTP_STEP add column RETRY_JITTER double precision ;
+alter table WFSTP_STEP add column RETRY_MAX_DELAY_SEC integer ;
+alter table WFSTP_STEP add column RETRY_MAX_ATTEMPTS integer ;
@@ -0,0 +1,3 @@
+alter table WFSTP_WORKFLOW_INSTANCE add column LEASE_OWNER varchar(255) ;
+alter table WFSTP_WORKFLOW_INSTANCE add column LEASE_EXPIRES timestamp ;
+alter table WFSTP_WORKFLOW_INSTANCE add column LEASE_TOKEN bigint ;
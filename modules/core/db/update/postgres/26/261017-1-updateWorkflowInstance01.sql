@@ -0,0 +1,6 @@
+alter table WFSTP_WORKFLOW_INSTANCE add column NEXT_WAKEUP_AT timestamp ;
+-- running instances will be recalculated by the next heartbeat
+update WFSTP_WORKFLOW_INSTANCE set NEXT_WAKEUP_AT = current_timestamp
+where END_DATE is null and ERROR_ is null and DELETE_TS is null;
+create index IDX_WFSTP_WORKFLOW_INSTANCE_NEXT_WAKEUP_AT on WFSTP_WORKFLOW_INSTANCE (NEXT_WAKEUP_AT)
+where NEXT_WAKEUP_AT is not null and END_DATE is null and ERROR_ is null and DELETE_TS is null;
@@ -0,0 +1,8 @@
+-- pointers are maintained by the workflow engine, foreign keys are omitted because of cyclic reference with tasks
+alter table WFSTP_WORKFLOW_INSTANCE add column CURRENT_TASK_ID uuid ;
+alter table WFSTP_WORKFLOW_INSTANCE add column CURRENT_STEP_ID uuid ;
+-- point instances to their last tasks
+update WFSTP_WORKFLOW_INSTANCE i set CURRENT_TASK_ID = t.ID, CURRENT_STEP_ID = t.STEP_ID
+from (select distinct on (INSTANCE_ID) ID, INSTANCE_ID, STEP_ID from WFSTP_WORKFLOW_INSTANCE_TASK
+      where DELETE_TS is null order by INSTANCE_ID, CREATE_TS desc) t
+where t.INSTANCE_ID = i.ID;
@@ -0,0 +1,2 @@
+alter table WFSTP_WORKFLOW_INSTANCE add column ATTEMPTS integer ;
+alter table WFSTP_WORKFLOW_INSTANCE add column STALLED boolean ;
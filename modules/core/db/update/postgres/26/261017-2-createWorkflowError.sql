@@ -0,0 +1 @@
+create unique index IDX_WFSTP_WORKFLOW_ERROR_UNIQ_HASH on WFSTP_WORKFLOW_ERROR (HASH);
@@ -0,0 +1,3 @@
+alter table WFSTP_WORKFLOW_INSTANCE add column ERROR_REF_ID uuid ;
+alter table WFSTP_WORKFLOW_INSTANCE add constraint FK_WFSTP_WORKFLOW_INSTANCE_ON_ERROR_REF foreign key (ERROR_REF_ID) references WFSTP_WORKFLOW_ERROR(ID);
+create index IDX_WFSTP_WORKFLOW_INSTANCE_ON_ERROR_REF on WFSTP_WORKFLOW_INSTANCE (ERROR_REF_ID);
@@ -0,0 +1 @@
+alter table WFSTP_WORKFLOW_INSTANCE_ARCH add column ERROR_REF_ID uuid ;
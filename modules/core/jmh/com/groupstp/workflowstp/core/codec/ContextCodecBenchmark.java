@@ -0,0 +1,88 @@
+package com.groupstp.workflowstp.core.codec;
+
+import com.groupstp.workflowstp.core.constant.WorkflowConstants;
+import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparison of execution context codecs encode and decode latency. Stored text length of each codec is printed on setup.
+ * Contexts are filled like by stages: system parameters, direction variables, entity references and free texts.
+ * Run by <pre>gradlew :wfstp-core:jmh -PjmhArgs="ContextCodecBenchmark"</pre>
+ *
+ * @author adiatullin
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextCodecBenchmark {
+
+    /**
+     * Count of context parameters
+     */
+    @Param({"5", "20", "100"})
+    public int size;
+
+    private JsonContextCodec json;
+    private SmileContextCodec smile;
+
+    private WorkflowExecutionContext context;
+    private String jsonText;
+    private String smileText;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        json = new JsonContextCodec();
+        smile = new SmileContextCodec();
+
+        Random random = new Random(size);
+        context = new WorkflowExecutionContext();
+        context.putParam(WorkflowConstants.REPEAT, Long.toString(System.currentTimeMillis()));
+        context.putParam(WorkflowConstants.TIMEOUT, null);
+        for (int i = 2; i < size; i++) {
+            switch (i % 4) {
+                case 0:
+                    context.putParam("approved" + i, Boolean.toString(random.nextBoolean()));
+                    break;
+                case 1:
+                    context.putParam("documentId" + i, UUID.randomUUID().toString());
+                    break;
+                case 2:
+                    context.putParam("amount" + i, Long.toString(random.nextInt(1_000_000)));
+                    break;
+                default:
+                    context.putParam("comment" + i, "Document was checked by the responsible manager, comment number " + random.nextInt(100));
+            }
+        }
+
+        jsonText = json.encode(context);
+        smileText = smile.encode(context);
+        System.out.printf("%nStored context length with %s parameters: json %s, smile %s%n", size, jsonText.length(), smileText.length());
+    }
+
+    @Benchmark
+    public String encodeJson() {
+        return json.encode(context);
+    }
+
+    @Benchmark
+    public String encodeSmile() {
+        return smile.encode(context);
+    }
+
+    @Benchmark
+    public WorkflowExecutionContext decodeJson() {
+        return json.decode(jsonText);
+    }
+
+    @Benchmark
+    public WorkflowExecutionContext decodeSmile() {
+        return smile.decode(smileText);
+    }
+}
@@ -0,0 +1,31 @@
+package com.groupstp.workflowstp.core.bean;
+
+/**
+ * Moving of finished workflow instances with their tasks and comments into the archive tables
+ * and removing of outdated archived data
+ *
+ * @author adiatullin
+ */
+public interface WorkflowArchiver {
+    String NAME = "wfstp_WorkflowArchiver";
+
+    /**
+     * Move finished workflow instances which are older than configured period into the archive
+     *
+     * @return count of archived workflow instances
+     */
+    int archive();
+
+    /**
+     * Remove archived workflow instances which are older than configured retention period
+     *
+     * @return count of removed archived workflow instances
+     */
+    int purge();
+
+    /**
+     * Perform archiving and purging of workflow instances if it enabled.
+     * INTERNAL: Method should be called only from <p>scheduler</p>
+     */
+    void performArchiving();
+}
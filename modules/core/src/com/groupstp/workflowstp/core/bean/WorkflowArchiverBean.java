@@ -0,0 +1,252 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.global.UuidProvider;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.security.app.Authentication;
+import org.apache.commons.lang.time.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Base implementation of workflow instances archiving which is using plain sql to move rows between the tables
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowArchiver.NAME)
+public class WorkflowArchiverBean implements WorkflowArchiver {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowArchiverBean.class);
+
+    protected static final String INSTANCE_COLUMNS = "ID, VERSION, CREATE_TS, CREATED_BY, UPDATE_TS, UPDATED_BY, DELETE_TS, DELETED_BY, " +
+            "WORKFLOW_ID, ENTITY_NAME, ENTITY_ID, CONTEXT, START_DATE, END_DATE, ERROR_, ERROR_IN_TASK, ERROR_REF_ID, CURRENT_TASK_ID, CURRENT_STEP_ID";
+    protected static final String TASK_COLUMNS = "ID, VERSION, CREATE_TS, CREATED_BY, UPDATE_TS, UPDATED_BY, DELETE_TS, DELETED_BY, " +
+            "INSTANCE_ID, STEP_ID, START_DATE, END_DATE";
+    protected static final String COMMENT_COLUMNS = "ID, VERSION, CREATE_TS, CREATED_BY, UPDATE_TS, UPDATED_BY, DELETE_TS, DELETED_BY, " +
+            "INSTANCE_ID, TASK_ID, AUTHOR_ID, COMMENT, ATTACHMENT_ID";
+
+    @Inject
+    protected Persistence persistence;
+    @Inject
+    protected TimeSource timeSource;
+    @Inject
+    protected Authentication authentication;
+
+    @Inject
+    protected WorkflowConfig config;
+
+    @Override
+    public int archive() {
+        Integer days = config.getArchiveAfterDays();
+        if (days == null || days < 0) {
+            return 0;
+        }
+        Timestamp threshold = new Timestamp(DateUtils.addDays(timeSource.currentTimestamp(), -days).getTime());
+        if (isArchivePartitioned()) {
+            createArchivePartitions(threshold);
+        }
+
+        int total = 0;
+        while (true) {
+            int count = execute(connection -> archiveChunk(connection, threshold));
+            total += count;
+            if (count < getChunkSize()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Archived {} finished workflow instances", total);
+        }
+        return total;
+    }
+
+    @Override
+    public int purge() {
+        Integer days = config.getPurgeAfterDays();
+        if (days == null || days <= 0) {
+            return 0;
+        }
+        Timestamp threshold = new Timestamp(DateUtils.addDays(timeSource.currentTimestamp(), -days).getTime());
+
+        int total = 0;
+        while (true) {
+            int count = execute(connection -> purgeChunk(connection, threshold));
+            total += count;
+            if (count < getChunkSize()) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Purged {} archived workflow instances", total);
+        }
+        purgeErrors(threshold);
+        return total;
+    }
+
+    @Override
+    public void performArchiving() {
+        if (!AppContext.isStarted() || !Boolean.TRUE.equals(config.getArchiveEnable())) {
+            return;
+        }
+        authentication.begin();
+        try {
+            archive();
+            purge();
+        } catch (Exception e) {
+            log.error("Failed to archive workflow instances", e);
+        } finally {
+            authentication.end();
+        }
+    }
+
+    /**
+     * Move one chunk of finished workflow instances into the archive. Instances locked by another transactions are skipped.
+     */
+    protected int archiveChunk(Connection connection, Timestamp threshold) throws SQLException {
+        QueryRunner runner = new QueryRunner();
+        List<UUID> ids = runner.query(connection,
+                "select ID from WFSTP_WORKFLOW_INSTANCE where END_DATE is not null and END_DATE < ? " +
+                        "order by END_DATE limit ? for update skip locked",
+                new Object[]{threshold, getChunkSize()}, this::readIds);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = in(ids.size());
+        Object[] params = ids.toArray();
+
+        Object[] instanceParams = new Object[ids.size() + 1];
+        instanceParams[0] = new Timestamp(timeSource.currentTimestamp().getTime());
+        System.arraycopy(params, 0, instanceParams, 1, params.length);
+
+        runner.update(connection, "insert into WFSTP_WORKFLOW_INSTANCE_ARCH (" + INSTANCE_COLUMNS + ", ARCHIVE_TS) " +
+                "select " + INSTANCE_COLUMNS + ", ? from WFSTP_WORKFLOW_INSTANCE where ID in " + in, instanceParams);
+        runner.update(connection, "insert into WFSTP_WORKFLOW_INSTANCE_TASK_ARCH (" + TASK_COLUMNS + ") " +
+                "select " + TASK_COLUMNS + " from WFSTP_WORKFLOW_INSTANCE_TASK where INSTANCE_ID in " + in, params);
+        runner.update(connection, "insert into WFSTP_WORKFLOW_INSTANCE_COMMENT_ARCH (" + COMMENT_COLUMNS + ") " +
+                "select " + COMMENT_COLUMNS + " from WFSTP_WORKFLOW_INSTANCE_COMMENT where INSTANCE_ID in " + in, params);
+        runner.update(connection, "insert into WFSTP_TASK_PERFORMERS_LINK_ARCH (TASK_ID, PERFORMER_ID) " +
+                "select l.TASK_ID, l.PERFORMER_ID from WFSTP_TASK_PERFORMERS_LINK l " +
+                "join WFSTP_WORKFLOW_INSTANCE_TASK t on t.ID = l.TASK_ID where t.INSTANCE_ID in " + in, params);
+
+        deleteInstances(runner, connection, "", in, params);
+        return ids.size();
+    }
+
+    /**
+     * Remove one chunk of outdated archived workflow instances
+     */
+    protected int purgeChunk(Connection connection, Timestamp threshold) throws SQLException {
+        QueryRunner runner = new QueryRunner();
+        List<UUID> ids = runner.query(connection,
+                "select ID from WFSTP_WORKFLOW_INSTANCE_ARCH where END_DATE < ? order by END_DATE limit ?",
+                new Object[]{threshold, getChunkSize()}, this::readIds);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        deleteInstances(runner, connection, "_ARCH", in(ids.size()), ids.toArray());
+        return ids.size();
+    }
+
+    /**
+     * Remove not referenced anymore and not repeated since threshold errors signatures
+     */
+    protected void purgeErrors(Timestamp threshold) {
+        int count = execute(connection -> new QueryRunner().update(connection,
+                "delete from WFSTP_WORKFLOW_ERROR e where e.LAST_SEEN < ? " +
+                        "and not exists (select 1 from WFSTP_WORKFLOW_INSTANCE i where i.ERROR_REF_ID = e.ID) " +
+                        "and not exists (select 1 from WFSTP_WORKFLOW_INSTANCE_ARCH a where a.ERROR_REF_ID = e.ID)",
+                new Object[]{threshold}));
+        if (count > 0) {
+            log.info("Purged {} workflow errors", count);
+        }
+    }
+
+    protected void deleteInstances(QueryRunner runner, Connection connection, String suffix, String in, Object[] params)
+            throws SQLException {
+        runner.update(connection, "delete from WFSTP_TASK_PERFORMERS_LINK" + suffix + " where TASK_ID in " +
+                "(select ID from WFSTP_WORKFLOW_INSTANCE_TASK" + suffix + " where INSTANCE_ID in " + in + ")", params);
+        runner.update(connection, "delete from WFSTP_WORKFLOW_INSTANCE_COMMENT" + suffix + " where INSTANCE_ID in " + in, params);
+        runner.update(connection, "delete from WFSTP_WORKFLOW_INSTANCE_TASK" + suffix + " where INSTANCE_ID in " + in, params);
+        runner.update(connection, "delete from WFSTP_WORKFLOW_INSTANCE" + suffix + " where ID in " + in, params);
+    }
+
+    /**
+     * @return is instances archive table declared as partitioned by end date
+     */
+    protected boolean isArchivePartitioned() {
+        return execute(connection -> new QueryRunner().query(connection,
+                "select 1 from pg_class where relname = 'wfstp_workflow_instance_arch' and relkind = 'p'",
+                rs -> rs.next()));
+    }
+
+    /**
+     * Create monthly partitions of instances archive table for all months of archiving instances
+     */
+    protected void createArchivePartitions(Timestamp threshold) {
+        List<Date> months = execute(connection -> new QueryRunner().query(connection,
+                "select distinct date_trunc('month', END_DATE) from WFSTP_WORKFLOW_INSTANCE " +
+                        "where END_DATE is not null and END_DATE < ?",
+                new Object[]{threshold},
+                rs -> {
+                    List<Date> result = new ArrayList<>();
+                    while (rs.next()) {
+                        result.add(rs.getTimestamp(1));
+                    }
+                    return result;
+                }));
+        SimpleDateFormat nameFormat = new SimpleDateFormat("yyyyMM");
+        SimpleDateFormat boundFormat = new SimpleDateFormat("yyyy-MM-dd");
+        for (Date month : months) {
+            String sql = String.format("create table if not exists WFSTP_WORKFLOW_INSTANCE_ARCH_%s " +
+                            "partition of WFSTP_WORKFLOW_INSTANCE_ARCH for values from ('%s') to ('%s')",
+                    nameFormat.format(month), boundFormat.format(month), boundFormat.format(DateUtils.addMonths(month, 1)));
+            execute(connection -> new QueryRunner().update(connection, sql));
+        }
+    }
+
+    protected List<UUID> readIds(ResultSet rs) throws SQLException {
+        List<UUID> result = new ArrayList<>();
+        while (rs.next()) {
+            result.add(UuidProvider.fromString(rs.getString(1)));
+        }
+        return result;
+    }
+
+    protected String in(int size) {
+        return "(" + String.join(",", Collections.nCopies(size, "?")) + ")";
+    }
+
+    protected int getChunkSize() {
+        Integer size = config.getArchiveChunkSize();
+        return size == null || size <= 0 ? 500 : size;
+    }
+
+    /**
+     * Execute provided sql logic in a separate transaction
+     */
+    protected <T> T execute(SqlCallable<T> callable) {
+        try (Transaction tr = persistence.createTransaction()) {
+            T result = callable.call(persistence.getEntityManager().getConnection());
+            tr.commit();
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to perform workflow instances archiving", e);
+        }
+    }
+
+    protected interface SqlCallable<T> {
+        T call(Connection connection) throws SQLException;
+    }
+}
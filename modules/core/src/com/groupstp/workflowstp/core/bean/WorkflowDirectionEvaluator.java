@@ -0,0 +1,72 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.StepDirection;
+import com.haulmont.chile.core.model.MetaClass;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set-based evaluator of workflow directions sql conditions. Transformed queries are cached by directions versions,
+ * all sql directions of a step are checked by one query for a chunk of entities.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowDirectionEvaluator {
+    String NAME = "wfstp_WorkflowDirectionEvaluator";
+
+    /**
+     * Check several directions by one query and find the first satisfied direction for each entity
+     *
+     * @param directions directions with sql conditions in checking order
+     * @param metaClass  workflow entities class
+     * @param ids        workflow entities IDs
+     * @return index of the first satisfied direction by entity ID, entities without satisfied directions are absent
+     */
+    Map<Object, Integer> evaluate(List<StepDirection> directions, MetaClass metaClass, Collection<?> ids);
+
+    /**
+     * Check one direction for several entities
+     *
+     * @param direction direction with sql condition
+     * @param metaClass workflow entities class
+     * @param ids       workflow entities IDs
+     * @return IDs of entities which are satisfy to the direction
+     */
+    Set<Object> evaluate(StepDirection direction, MetaClass metaClass, Collection<?> ids);
+
+    /**
+     * Remember prefetched result of step directions checking for workflow instance
+     *
+     * @param instanceId workflow instance ID
+     * @param stepId     step ID from which the instance is moving
+     * @param index      index of the first satisfied direction or -1
+     */
+    void remember(UUID instanceId, UUID stepId, int index);
+
+    /**
+     * Take and forget prefetched result of step directions checking
+     *
+     * @param instanceId workflow instance ID
+     * @param stepId     step ID from which the instance is moving
+     * @return index of the first satisfied direction, -1 if nothing satisfied or null if there is no actual prefetched result
+     */
+    @Nullable
+    Integer recall(UUID instanceId, UUID stepId);
+
+    /**
+     * Forget prefetched result of step directions checking, e.g. if the instance will not be iterated soon
+     *
+     * @param instanceId workflow instance ID
+     */
+    void discard(UUID instanceId);
+
+    /**
+     * Remove all cached queries and prefetched results
+     */
+    void invalidateAll();
+}
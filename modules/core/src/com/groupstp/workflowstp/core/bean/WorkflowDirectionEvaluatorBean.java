@@ -0,0 +1,182 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.StepDirection;
+import com.groupstp.workflowstp.event.WorkflowDefinitionChangedEvent;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base implementation of workflow directions sql conditions evaluator
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowDirectionEvaluator.NAME)
+public class WorkflowDirectionEvaluatorBean implements WorkflowDirectionEvaluator {
+
+    protected static final int CHUNK_SIZE = 500;
+    /**
+     * Maximum time of prefetched result waiting for its iteration, entity state could be changed after it
+     */
+    protected static final long PREFETCH_TTL_MS = 10_000L;
+
+    @Inject
+    protected DataManager dataManager;
+    @Inject
+    protected TimeSource timeSource;
+
+    /**
+     * Transformed where clauses by entity name, direction ID and version
+     */
+    protected final Map<String, String> conditions = new ConcurrentHashMap<>();
+    /**
+     * Prefetched results by workflow instance ID
+     */
+    protected final Map<UUID, Prefetched> prefetched = new ConcurrentHashMap<>();
+
+    @Override
+    public Map<Object, Integer> evaluate(List<StepDirection> directions, MetaClass metaClass, Collection<?> ids) {
+        Preconditions.checkNotNullArgument(directions);
+        Preconditions.checkNotNullArgument(metaClass);
+        Preconditions.checkNotNullArgument(ids);
+
+        Map<Object, Integer> result = new HashMap<>();
+        if (directions.isEmpty() || ids.isEmpty()) {
+            return result;
+        }
+
+        StringBuilder sb = new StringBuilder("select e.id, case");
+        for (int i = 0; i < directions.size(); i++) {
+            sb.append(" when ").append(getCondition(directions.get(i), metaClass)).append(" then ").append(i);
+        }
+        sb.append(" else -1 end from ").append(metaClass.getName()).append(" e where e.id in :ids");
+        String query = sb.toString();
+
+        for (List<?> chunk : split(ids)) {
+            List<KeyValueEntity> list = dataManager.loadValues(ValueLoadContext.create()
+                    .setQuery(ValueLoadContext.createQuery(query).setParameter("ids", chunk))
+                    .addProperty("id")
+                    .addProperty("index"));
+            for (KeyValueEntity item : list) {
+                Number index = item.getValue("index");
+                if (index != null && index.intValue() >= 0) {
+                    result.put(item.getValue("id"), index.intValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<Object> evaluate(StepDirection direction, MetaClass metaClass, Collection<?> ids) {
+        Preconditions.checkNotNullArgument(direction);
+        Preconditions.checkNotNullArgument(metaClass);
+        Preconditions.checkNotNullArgument(ids);
+
+        Set<Object> result = new HashSet<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        String query = "select e.id from " + metaClass.getName() + " e where " + getCondition(direction, metaClass) + " and e.id in :ids";
+        for (List<?> chunk : split(ids)) {
+            List<KeyValueEntity> list = dataManager.loadValues(ValueLoadContext.create()
+                    .setQuery(ValueLoadContext.createQuery(query).setParameter("ids", chunk))
+                    .addProperty("id"));
+            for (KeyValueEntity item : list) {
+                result.add(item.getValue("id"));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void remember(UUID instanceId, UUID stepId, int index) {
+        Preconditions.checkNotNullArgument(instanceId);
+        Preconditions.checkNotNullArgument(stepId);
+
+        long now = timeSource.currentTimeMillis();
+        if (prefetched.size() > CHUNK_SIZE) {
+            //results of instances which were processed by another node never be recalled
+            prefetched.values().removeIf(item -> item.isExpired(now));
+        }
+        prefetched.put(instanceId, new Prefetched(stepId, index, now));
+    }
+
+    @Nullable
+    @Override
+    public Integer recall(UUID instanceId, UUID stepId) {
+        Preconditions.checkNotNullArgument(instanceId);
+        Preconditions.checkNotNullArgument(stepId);
+
+        Prefetched item = prefetched.remove(instanceId);
+        if (item == null || !Objects.equals(item.stepId, stepId) || item.isExpired(timeSource.currentTimeMillis())) {
+            return null;
+        }
+        return item.index;
+    }
+
+    @Override
+    public void discard(UUID instanceId) {
+        Preconditions.checkNotNullArgument(instanceId);
+        prefetched.remove(instanceId);
+    }
+
+    @Override
+    public void invalidateAll() {
+        conditions.clear();
+        prefetched.clear();
+    }
+
+    @EventListener
+    public void onDefinitionChanged(WorkflowDefinitionChangedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Get transformed where clause of direction sql condition
+     */
+    protected String getCondition(StepDirection direction, MetaClass metaClass) {
+        String key = metaClass.getName() + ":" + direction.getId() + ":" + direction.getVersion();
+        return conditions.computeIfAbsent(key, k -> {
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer("select e from " + metaClass.getName() + " e");
+            transformer.addWhere(direction.getConditionSqlScript());
+
+            String query = transformer.getResult();
+            return "(" + query.substring(query.indexOf(" where ") + " where ".length()) + ")";
+        });
+    }
+
+    protected List<List<?>> split(Collection<?> ids) {
+        List<?> list = new ArrayList<>(ids);
+        List<List<?>> result = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += CHUNK_SIZE) {
+            result.add(list.subList(i, Math.min(i + CHUNK_SIZE, list.size())));
+        }
+        return result;
+    }
+
+    protected static class Prefetched {
+        private final UUID stepId;
+        private final int index;
+        private final long ts;
+
+        public Prefetched(UUID stepId, int index, long ts) {
+            this.stepId = stepId;
+            this.index = index;
+            this.ts = ts;
+        }
+
+        public boolean isExpired(long now) {
+            return now - ts > PREFETCH_TTL_MS;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.WorkflowEntity;
+import com.groupstp.workflowstp.entity.WorkflowInstance;
+import com.haulmont.chile.core.model.MetaClass;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Batch loading of workflow related entities. Entities are loaded by one query per entity type and chunk
+ * and handed over to the following iterations of workflow instances.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowEntityPrefetcher {
+    String NAME = "wfstp_WorkflowEntityPrefetcher";
+
+    /**
+     * Load related entities of workflow instances by set queries
+     *
+     * @param instances workflow instances with loaded entity name and ID
+     * @return loaded entities by workflow instance IDs. If several instances are related to the same entity,
+     * entity is returned for one of them only, so loaded entity objects are never shared between instances.
+     */
+    Map<UUID, WorkflowEntity> load(Collection<WorkflowInstance> instances);
+
+    /**
+     * Load related entities of workflow instances and keep them for the following iterations.
+     * Kept entities expire after a short time to not process outdated data, anyway they must be reloaded before changing.
+     *
+     * @param instances workflow instances with loaded entity name and ID
+     */
+    void prefetch(Collection<WorkflowInstance> instances);
+
+    /**
+     * Take prefetched entity of workflow instance. Entity is removed from the prefetched entities.
+     *
+     * @param instanceId workflow instance ID
+     * @return prefetched entity or null if it is not prefetched or expired
+     */
+    @Nullable
+    WorkflowEntity take(UUID instanceId);
+
+    /**
+     * Forget prefetched entity of workflow instance
+     *
+     * @param instanceId workflow instance ID
+     */
+    void discard(UUID instanceId);
+
+    /**
+     * Parse entity ID to correct java object
+     *
+     * @param metaClass entity meta class
+     * @param entityId  string representation of entity ID
+     * @return entity ID
+     */
+    @Nullable
+    Object parseEntityId(MetaClass metaClass, @Nullable String entityId);
+}
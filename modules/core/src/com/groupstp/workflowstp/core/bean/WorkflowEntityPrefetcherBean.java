@@ -0,0 +1,168 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.WorkflowEntity;
+import com.groupstp.workflowstp.entity.WorkflowInstance;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.*;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base implementation of workflow related entities batch loading
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowEntityPrefetcher.NAME)
+public class WorkflowEntityPrefetcherBean implements WorkflowEntityPrefetcher {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowEntityPrefetcherBean.class);
+
+    protected static final int CHUNK_SIZE = 500;
+    protected static final int IDS_CACHE_SIZE = 10000;
+    /**
+     * Maximum time of prefetched entity waiting for its iteration
+     */
+    protected static final long TTL_MS = 10_000L;
+
+    @Inject
+    protected DataManager dataManager;
+    @Inject
+    protected Metadata metadata;
+
+    /**
+     * Prefetched entities by workflow instance IDs
+     */
+    protected final Map<UUID, Prefetched> prefetched = new ConcurrentHashMap<>();
+    /**
+     * Java types of entities IDs by entity names
+     */
+    protected final Map<String, Class> idTypes = new ConcurrentHashMap<>();
+    /**
+     * Parsed entities IDs by entity name and string ID
+     */
+    protected final Map<String, Object> ids = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+        private static final long serialVersionUID = -8118209712650853016L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > IDS_CACHE_SIZE;
+        }
+    };
+
+    @Override
+    public Map<UUID, WorkflowEntity> load(Collection<WorkflowInstance> instances) {
+        Map<String, Map<Object, List<UUID>>> groups = new LinkedHashMap<>();
+        for (WorkflowInstance instance : instances) {
+            if (PersistenceHelper.isLoaded(instance, "entityName") && PersistenceHelper.isLoaded(instance, "entityId")
+                    && !StringUtils.isEmpty(instance.getEntityName())) {
+                Object id = parseEntityId(metadata.getClassNN(instance.getEntityName()), instance.getEntityId());
+                if (id != null) {
+                    groups.computeIfAbsent(instance.getEntityName(), k -> new LinkedHashMap<>())
+                            .computeIfAbsent(id, k -> new ArrayList<>(1))
+                            .add(instance.getId());
+                }
+            }
+        }
+
+        Map<UUID, WorkflowEntity> result = new HashMap<>();
+        for (Map.Entry<String, Map<Object, List<UUID>>> group : groups.entrySet()) {
+            MetaClass metaClass = metadata.getClassNN(group.getKey());
+            List<Object> entityIds = new ArrayList<>(group.getValue().keySet());
+            for (int i = 0; i < entityIds.size(); i += CHUNK_SIZE) {
+                List<Object> chunk = entityIds.subList(i, Math.min(i + CHUNK_SIZE, entityIds.size()));
+                try {
+                    //noinspection unchecked
+                    List<Entity> entities = dataManager.loadList(LoadContext.create(metaClass.getJavaClass())
+                            .setQuery(LoadContext.createQuery("select e from " + metaClass.getName() + " e where e.id in :ids")
+                                    .setParameter("ids", chunk))
+                            .setView(View.LOCAL));
+                    for (Entity entity : entities) {
+                        List<UUID> instanceIds = group.getValue().get(entity.getId());
+                        if (!CollectionUtils.isEmpty(instanceIds)) {
+                            //entity object is mutable, it's handed to one instance only, others will load their own copies
+                            result.put(instanceIds.get(0), (WorkflowEntity) entity);
+                        }
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to load {} entities", metaClass.getName(), e);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void prefetch(Collection<WorkflowInstance> instances) {
+        long now = System.currentTimeMillis();
+        prefetched.values().removeIf(item -> item.expiresAt < now);
+
+        if (instances.size() < 2) {
+            return;
+        }
+        for (Map.Entry<UUID, WorkflowEntity> entry : load(instances).entrySet()) {
+            prefetched.put(entry.getKey(), new Prefetched(entry.getValue(), now + TTL_MS));
+        }
+    }
+
+    @Nullable
+    @Override
+    public WorkflowEntity take(UUID instanceId) {
+        Prefetched item = prefetched.remove(instanceId);
+        return item == null || item.expiresAt < System.currentTimeMillis() ? null : item.entity;
+    }
+
+    @Override
+    public void discard(UUID instanceId) {
+        prefetched.remove(instanceId);
+    }
+
+    @Nullable
+    @Override
+    public Object parseEntityId(MetaClass metaClass, @Nullable String entityId) {
+        if (StringUtils.isEmpty(entityId)) {
+            return null;
+        }
+        String key = metaClass.getName() + ":" + entityId;
+        synchronized (ids) {
+            Object id = ids.get(key);
+            if (id != null) {
+                return id;
+            }
+        }
+        Class idClass = idTypes.computeIfAbsent(metaClass.getName(), k -> metaClass.getPropertyNN("id").getJavaType());
+        Object id;
+        if (UUID.class.isAssignableFrom(idClass)) {
+            id = UuidProvider.fromString(entityId);
+        } else if (Integer.class.isAssignableFrom(idClass)) {
+            id = Integer.valueOf(entityId);
+        } else if (Long.class.isAssignableFrom(idClass)) {
+            id = Long.valueOf(entityId);
+        } else if (String.class.isAssignableFrom(idClass)) {
+            id = entityId;
+        } else {
+            throw new UnsupportedOperationException(String.format("Unknown entity '%s' id type '%s'", metaClass.getName(), entityId));
+        }
+        synchronized (ids) {
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    protected static class Prefetched {
+        protected final WorkflowEntity entity;
+        protected final long expiresAt;
+
+        protected Prefetched(WorkflowEntity entity, long expiresAt) {
+            this.entity = entity;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
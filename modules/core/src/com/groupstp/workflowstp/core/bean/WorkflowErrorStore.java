@@ -0,0 +1,41 @@
+package com.groupstp.workflowstp.core.bean;
+
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * Store of deduplicated workflow failures. Identical failures are kept once with occurrences counter,
+ * so failure bursts do not write the same stack trace for each workflow instance.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowErrorStore {
+    String NAME = "wfstp_WorkflowErrorStore";
+
+    /**
+     * Maximum length of short failure message kept in workflow instance
+     */
+    int MESSAGE_LENGTH = 1000;
+
+    /**
+     * Register failure occurrence in a separate transaction
+     *
+     * @param e failure
+     * @return ID of error signature or null if failure can not be registered
+     */
+    @Nullable
+    UUID register(Throwable e);
+
+    /**
+     * @param e failure
+     * @return short message of provided failure which is kept in workflow instance
+     */
+    String getShortMessage(Throwable e);
+
+    /**
+     * @param e failure
+     * @return signature hash of provided failure. Failures with the same exceptions chain and stack frames have
+     * the same signature even if their messages are different.
+     */
+    String getHash(Throwable e);
+}
@@ -0,0 +1,133 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.util.CompressionUtils;
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.core.global.UuidProvider;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Base implementation of workflow failures store which is using Postgres upsert
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowErrorStore.NAME)
+public class WorkflowErrorStoreBean implements WorkflowErrorStore {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowErrorStoreBean.class);
+
+    protected static final int MAX_FRAMES = 100;
+    protected static final int CACHE_SIZE = 1000;
+
+    @Inject
+    protected Persistence persistence;
+    @Inject
+    protected TimeSource timeSource;
+    @Inject
+    protected UserSessionSource userSessionSource;
+
+    /**
+     * Already registered signatures hashes with their IDs, to avoid trace compression on repeated failures
+     */
+    protected final Map<String, UUID> known = new LinkedHashMap<String, UUID>(16, 0.75f, true) {
+        private static final long serialVersionUID = -5380136409128365412L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UUID> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    @Nullable
+    @Override
+    public UUID register(Throwable e) {
+        Preconditions.checkNotNullArgument(e);
+
+        String hash = getHash(e);
+        Timestamp now = new Timestamp(timeSource.currentTimestamp().getTime());
+        try (Transaction tr = persistence.createTransaction()) {
+            QueryRunner runner = new QueryRunner();
+
+            UUID id;
+            synchronized (known) {
+                id = known.get(hash);
+            }
+            if (id != null && runner.update(persistence.getEntityManager().getConnection(),
+                    "update WFSTP_WORKFLOW_ERROR set LAST_SEEN = ?, OCCURRENCES = OCCURRENCES + 1 where ID = ?",
+                    new Object[]{now, id}) == 0) {
+                id = null;//signature was removed
+            }
+            if (id == null) {
+                id = runner.query(persistence.getEntityManager().getConnection(),
+                        "insert into WFSTP_WORKFLOW_ERROR (ID, VERSION, CREATE_TS, CREATED_BY, HASH, MESSAGE, TRACE, FIRST_SEEN, LAST_SEEN, OCCURRENCES) " +
+                                "values (?, 1, ?, ?, ?, ?, ?, ?, ?, 1) " +
+                                "on conflict (HASH) do update set LAST_SEEN = excluded.LAST_SEEN, " +
+                                "OCCURRENCES = WFSTP_WORKFLOW_ERROR.OCCURRENCES + 1 " +
+                                "returning ID",
+                        new Object[]{UuidProvider.createUuid(), now, getUserLogin(), hash, getShortMessage(e),
+                                CompressionUtils.compress(ExceptionUtils.getFullStackTrace(e)), now, now},
+                        rs -> rs.next() ? UuidProvider.fromString(rs.getString(1)) : null);
+            }
+            tr.commit();
+
+            if (id != null) {
+                synchronized (known) {
+                    known.put(hash, id);
+                }
+            }
+            return id;
+        } catch (Exception ex) {
+            log.error("Failed to register workflow failure", ex);
+            return null;
+        }
+    }
+
+    @Override
+    public String getShortMessage(Throwable e) {
+        Preconditions.checkNotNullArgument(e);
+
+        String message = ExceptionUtils.getMessage(e);
+        Throwable root = ExceptionUtils.getRootCause(e);
+        if (root != null && root != e) {
+            message = message + " / " + ExceptionUtils.getMessage(root);
+        }
+        return StringUtils.abbreviate(message, MESSAGE_LENGTH);
+    }
+
+    @Override
+    public String getHash(Throwable e) {
+        Preconditions.checkNotNullArgument(e);
+
+        StringBuilder sb = new StringBuilder();
+        for (Throwable t : ExceptionUtils.getThrowables(e)) {
+            sb.append(t.getClass().getName()).append('\n');
+            StackTraceElement[] frames = t.getStackTrace();
+            for (int i = 0; i < Math.min(frames.length, MAX_FRAMES); i++) {
+                StackTraceElement frame = frames[i];
+                sb.append(frame.getClassName()).append('.').append(frame.getMethodName())
+                        .append(':').append(frame.getLineNumber()).append('\n');
+            }
+        }
+        return DigestUtils.sha256Hex(sb.toString());
+    }
+
+    @Nullable
+    protected String getUserLogin() {
+        return userSessionSource.checkCurrentUserSession() ? userSessionSource.getUserSession().getUser().getLogin() : null;
+    }
+}
@@ -0,0 +1,86 @@
+package com.groupstp.workflowstp.core.bean;
+
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Bounded workflow engine executor which performs workflow instances continuations asynchronously
+ *
+ * @author adiatullin
+ */
+public interface WorkflowExecutor {
+    String NAME = "wfstp_WorkflowExecutor";
+
+    /**
+     * Enqueue provided workflow instance continuation into the engine executor.
+     * Current caller security context will be used for execution.
+     *
+     * @param instanceId workflow instance ID
+     * @param task       continuation logic
+     * @return future of enqueued continuation
+     * @throws RejectedExecutionException if the engine queue is full
+     */
+    Future<?> submit(UUID instanceId, Runnable task) throws RejectedExecutionException;
+
+    /**
+     * Wait until all enqueued continuations of provided workflow instance are performed
+     *
+     * @param instanceId workflow instance ID
+     * @param timeoutMs  maximum time to wait in milliseconds
+     * @return true if there are no more pending continuations of the instance, false if timeout elapsed
+     */
+    boolean await(UUID instanceId, long timeoutMs);
+
+    /**
+     * @return count of waiting in the engine queue continuations
+     */
+    int getQueueSize();
+
+    /**
+     * @return count of currently performing continuations
+     */
+    int getActiveCount();
+
+    /**
+     * @return total count of enqueued continuations
+     */
+    long getSubmittedCount();
+
+    /**
+     * @return total count of performed continuations
+     */
+    long getCompletedCount();
+
+    /**
+     * @return total count of rejected by full queue continuations
+     */
+    long getRejectedCount();
+
+    /**
+     * @return average time in milliseconds which continuations spent in the engine queue
+     */
+    double getAverageWaitTimeMs();
+
+    /**
+     * @return maximum time in milliseconds which continuation spent in the engine queue
+     */
+    long getMaxWaitTimeMs();
+
+    /**
+     * @return average continuation execution time in milliseconds
+     */
+    double getAverageExecutionTimeMs();
+
+    /**
+     * @return maximum continuation execution time in milliseconds
+     */
+    long getMaxExecutionTimeMs();
+
+    /**
+     * Change count of the engine executor threads at runtime
+     *
+     * @param threads new count of threads
+     */
+    void setThreadCount(int threads);
+}
@@ -0,0 +1,228 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base implementation of workflow engine executor
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowExecutor.NAME)
+public class WorkflowExecutorBean implements WorkflowExecutor {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowExecutorBean.class);
+
+    @Inject
+    protected WorkflowConfig config;
+
+    /**
+     * Last enqueued continuation by workflow instance
+     */
+    protected final Map<UUID, Future<?>> pending = new ConcurrentHashMap<>();
+
+    protected final LongAdder submitted = new LongAdder();
+    protected final LongAdder completed = new LongAdder();
+    protected final LongAdder rejected = new LongAdder();
+    protected final LongAdder totalWaitTime = new LongAdder();
+    protected final AtomicLong maxWaitTime = new AtomicLong();
+    protected final LongAdder totalExecutionTime = new LongAdder();
+    protected final AtomicLong maxExecutionTime = new AtomicLong();
+
+    protected volatile ThreadPoolExecutor executor;
+
+    @Override
+    public Future<?> submit(UUID instanceId, Runnable task) throws RejectedExecutionException {
+        Preconditions.checkNotNullArgument(instanceId);
+        Preconditions.checkNotNullArgument(task);
+
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        long submitTs = System.currentTimeMillis();
+
+        FutureTask<?> future = new FutureTask<>(() -> {
+            long startTs = System.currentTimeMillis();
+            record(totalWaitTime, maxWaitTime, startTs - submitTs);
+
+            SecurityContext previous = AppContext.getSecurityContext();
+            AppContext.setSecurityContext(securityContext);
+            try {
+                task.run();
+            } finally {
+                AppContext.setSecurityContext(previous);
+
+                record(totalExecutionTime, maxExecutionTime, System.currentTimeMillis() - startTs);
+                completed.increment();
+            }
+        }, null);
+
+        pending.put(instanceId, future);
+        try {
+            getExecutor().execute(() -> {
+                try {
+                    future.run();
+                } finally {
+                    pending.remove(instanceId, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(instanceId, future);
+            rejected.increment();
+            throw e;
+        }
+        submitted.increment();
+
+        return future;
+    }
+
+    @Override
+    public boolean await(UUID instanceId, long timeoutMs) {
+        Preconditions.checkNotNullArgument(instanceId);
+
+        long deadline = System.currentTimeMillis() + Math.max(timeoutMs, 0);
+        Future<?> future = pending.get(instanceId);
+        while (future != null) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) {
+                return false;
+            }
+            try {
+                future.get(left, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException | CancellationException e) {
+                log.debug("Workflow instance {} continuation finished exceptionally", instanceId);
+            }
+            Future<?> next = pending.get(instanceId);
+            future = next == future ? null : next;
+        }
+        return true;
+    }
+
+    @Override
+    public int getQueueSize() {
+        ThreadPoolExecutor executor = this.executor;
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
+    @Override
+    public int getActiveCount() {
+        ThreadPoolExecutor executor = this.executor;
+        return executor == null ? 0 : executor.getActiveCount();
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public double getAverageWaitTimeMs() {
+        long count = completed.sum();
+        return count == 0 ? 0 : (double) totalWaitTime.sum() / count;
+    }
+
+    @Override
+    public long getMaxWaitTimeMs() {
+        return maxWaitTime.get();
+    }
+
+    @Override
+    public double getAverageExecutionTimeMs() {
+        long count = completed.sum();
+        return count == 0 ? 0 : (double) totalExecutionTime.sum() / count;
+    }
+
+    @Override
+    public long getMaxExecutionTimeMs() {
+        return maxExecutionTime.get();
+    }
+
+    @Override
+    public synchronized void setThreadCount(int threads) {
+        threads = Math.max(1, threads);
+        config.setAsyncThreadCount(threads);
+
+        ThreadPoolExecutor executor = this.executor;
+        if (executor != null) {
+            //maximum pool size can't be less than core pool size
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+            log.info("Workflow engine executor resized to {} threads", threads);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ThreadPoolExecutor executor = this.executor;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    protected ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor result = executor;
+        if (result == null) {
+            synchronized (this) {
+                result = executor;
+                if (result == null) {
+                    int threads = Math.max(1, config.getAsyncThreadCount());
+                    int queueSize = Math.max(1, config.getAsyncQueueSize());
+
+                    result = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(queueSize), new EngineThreadFactory());
+                    executor = result;
+
+                    log.info("Workflow engine executor started with {} threads and queue size {}", threads, queueSize);
+                }
+            }
+        }
+        return result;
+    }
+
+    protected void record(LongAdder total, AtomicLong max, long value) {
+        total.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    protected static class EngineThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "wfstp-engine-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.Stage;
+import com.groupstp.workflowstp.entity.Step;
+import com.groupstp.workflowstp.entity.StepDirection;
+import com.groupstp.workflowstp.entity.Workflow;
+import com.haulmont.bali.util.Preconditions;
+import org.apache.commons.collections4.CollectionUtils;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Immutable compiled workflow scheme: steps, sorted directions, stages and start step.
+ * Contained entities are shared between threads and must be used only for reading.
+ *
+ * @author adiatullin
+ */
+public final class WorkflowGraph {
+
+    private static final Comparator<Integer> ORDER_COMPARATOR = Comparator.nullsLast(Comparator.naturalOrder());
+
+    private final UUID workflowId;
+    private final Integer version;
+    private final boolean active;
+    private final String entityName;
+    private final Map<UUID, Step> steps;
+    private final Map<UUID, List<StepDirection>> directions;
+    private final Step startStep;
+
+    /**
+     * @param workflow workflow loaded by <p>workflow-graph</p> view
+     */
+    public WorkflowGraph(Workflow workflow) {
+        Preconditions.checkNotNullArgument(workflow);
+
+        this.workflowId = workflow.getId();
+        this.version = workflow.getVersion();
+        this.active = Boolean.TRUE.equals(workflow.getActive());
+        this.entityName = workflow.getEntityName();
+
+        List<Step> sortedSteps = workflow.getSteps() == null ? new ArrayList<>() : new ArrayList<>(workflow.getSteps());
+        sortedSteps.sort(Comparator.comparing(Step::getOrder, ORDER_COMPARATOR));
+
+        Map<UUID, Step> steps = new LinkedHashMap<>();
+        Map<UUID, List<StepDirection>> directions = new HashMap<>();
+        Step startStep = null;
+        for (Step step : sortedSteps) {
+            steps.put(step.getId(), step);
+
+            List<StepDirection> stepDirections = step.getDirections() == null ? new ArrayList<>() : new ArrayList<>(step.getDirections());
+            stepDirections.sort(Comparator.comparing(StepDirection::getOrder, ORDER_COMPARATOR));
+            directions.put(step.getId(), Collections.unmodifiableList(stepDirections));
+
+            if (startStep == null && Boolean.TRUE.equals(step.getStart())) {
+                startStep = step;
+            }
+        }
+        if (startStep == null && !sortedSteps.isEmpty()) {
+            startStep = sortedSteps.get(0);
+        }
+
+        this.steps = Collections.unmodifiableMap(steps);
+        this.directions = Collections.unmodifiableMap(directions);
+        this.startStep = startStep;
+    }
+
+    public UUID getWorkflowId() {
+        return workflowId;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    /**
+     * @return all workflow steps ordered by their order
+     */
+    public Collection<Step> getSteps() {
+        return steps.values();
+    }
+
+    @Nullable
+    public Step getStep(UUID stepId) {
+        return steps.get(stepId);
+    }
+
+    /**
+     * @return step stage with actors and viewers
+     */
+    @Nullable
+    public Stage getStage(UUID stepId) {
+        Step step = steps.get(stepId);
+        return step == null ? null : step.getStage();
+    }
+
+    /**
+     * @return directions from provided step ordered by their order
+     */
+    public List<StepDirection> getDirections(UUID stepId) {
+        List<StepDirection> result = directions.get(stepId);
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * @return is provided step the last one in the workflow
+     */
+    public boolean isFinal(UUID stepId) {
+        return CollectionUtils.isEmpty(directions.get(stepId));
+    }
+
+    /**
+     * @return step marked as start or the first one by order if no start steps
+     */
+    @Nullable
+    public Step getStartStep() {
+        return startStep;
+    }
+}
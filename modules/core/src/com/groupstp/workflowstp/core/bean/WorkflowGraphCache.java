@@ -0,0 +1,38 @@
+package com.groupstp.workflowstp.core.bean;
+
+import java.util.UUID;
+
+/**
+ * Cache of immutable workflow schemes which is used by engine instead of loading workflow definitions on each iteration.
+ * Cache is invalidated on any changes of workflows, steps, directions or stages in the whole cluster.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowGraphCache {
+    String NAME = "wfstp_WorkflowGraphCache";
+
+    /**
+     * Get compiled scheme of workflow. Scheme will be loaded if it is not cached yet.
+     *
+     * @param workflowId workflow ID
+     * @return workflow scheme
+     */
+    WorkflowGraph get(UUID workflowId);
+
+    /**
+     * Remove cached scheme of workflow on the current node
+     *
+     * @param workflowId workflow ID
+     */
+    void invalidate(UUID workflowId);
+
+    /**
+     * Remove all cached schemes on all cluster nodes
+     */
+    void invalidateAll();
+
+    /**
+     * @return count of cached schemes
+     */
+    int getSize();
+}
@@ -0,0 +1,134 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.Stage;
+import com.groupstp.workflowstp.entity.Step;
+import com.groupstp.workflowstp.entity.StepDirection;
+import com.groupstp.workflowstp.entity.Workflow;
+import com.groupstp.workflowstp.event.WorkflowDefinitionChangedEvent;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
+import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base implementation of workflow schemes cache
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowGraphCache.NAME)
+public class WorkflowGraphCacheBean implements WorkflowGraphCache {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowGraphCacheBean.class);
+
+    @Inject
+    protected DataManager dataManager;
+    @Inject
+    protected Metadata metadata;
+    @Inject
+    protected ClusterManagerAPI clusterManager;
+
+    protected final Map<UUID, WorkflowGraph> cache = new ConcurrentHashMap<>();
+    /**
+     * Invalidations counter, scheme loaded before invalidation must not be cached
+     */
+    protected final AtomicLong generation = new AtomicLong();
+    /**
+     * Guards generation check with caching against concurrent invalidation
+     */
+    protected final Object lock = new Object();
+
+    @PostConstruct
+    public void init() {
+        clusterManager.addListener(InvalidateMessage.class, new ClusterListenerAdapter<InvalidateMessage>() {
+            @Override
+            public void receive(InvalidateMessage message) {
+                invalidateLocal();
+            }
+        });
+    }
+
+    @Override
+    public WorkflowGraph get(UUID workflowId) {
+        Preconditions.checkNotNullArgument(workflowId);
+
+        WorkflowGraph graph = cache.get(workflowId);
+        if (graph == null) {
+            long currentGeneration = generation.get();
+
+            Workflow workflow = dataManager.load(Workflow.class)
+                    .query("select e from wfstp$Workflow e where e.id = :id")
+                    .parameter("id", workflowId)
+                    .view("workflow-graph")
+                    .optional()
+                    .orElseThrow(() -> new IllegalStateException(String.format("Workflow %s not found", workflowId)));
+            graph = new WorkflowGraph(workflow);
+
+            synchronized (lock) {
+                if (generation.get() == currentGeneration) {
+                    cache.put(workflowId, graph);
+                }
+            }
+            log.debug("Workflow {} scheme loaded", workflowId);
+        }
+        return graph;
+    }
+
+    @Override
+    public void invalidate(UUID workflowId) {
+        Preconditions.checkNotNullArgument(workflowId);
+
+        synchronized (lock) {
+            generation.incrementAndGet();
+            cache.remove(workflowId);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        invalidateLocal();
+        clusterManager.send(new InvalidateMessage());
+    }
+
+    @Override
+    public int getSize() {
+        return cache.size();
+    }
+
+    @EventListener
+    public void onDefinitionChanged(WorkflowDefinitionChangedEvent event) {
+        String name = event.getEntityName();
+        if (name.equals(metadata.getClassNN(Workflow.class).getName()) ||
+                name.equals(metadata.getClassNN(Step.class).getName()) ||
+                name.equals(metadata.getClassNN(StepDirection.class).getName()) ||
+                name.equals(metadata.getClassNN(Stage.class).getName())) {
+            //definitions are changing rarely, simply drop everything
+            invalidateAll();
+        }
+    }
+
+    protected void invalidateLocal() {
+        synchronized (lock) {
+            generation.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    /**
+     * Cluster message about workflow schemes changes
+     */
+    public static class InvalidateMessage implements Serializable {
+        private static final long serialVersionUID = 2940148532771569308L;
+    }
+}
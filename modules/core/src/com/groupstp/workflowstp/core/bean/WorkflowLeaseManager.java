@@ -0,0 +1,74 @@
+package com.groupstp.workflowstp.core.bean;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cluster-safe workflow instances leasing. Lease is stored in the database with owner node,
+ * expiration time and fencing token, so only one middleware node can process an instance at the same time.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowLeaseManager {
+    String NAME = "wfstp_WorkflowLeaseManager";
+
+    /**
+     * @return is database leasing enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * @return current node lease owner identifier
+     */
+    String getOwner();
+
+    /**
+     * Acquire or prolong lease of workflow instance by current node
+     *
+     * @param instanceId workflow instance ID
+     * @param force      take lease even if it is held by another node
+     * @return true if lease acquired
+     */
+    boolean acquire(UUID instanceId, boolean force);
+
+    /**
+     * Release held by current node lease of workflow instance
+     *
+     * @param instanceId workflow instance ID
+     */
+    void release(UUID instanceId);
+
+    /**
+     * Claim a batch of not finished, due and not leased workflow instances ordered by creation time and ID.
+     * Instances locked by another nodes are skipped.
+     *
+     * @param lastCreateTs creation time of the last instance from previous batch or null if this is a first batch
+     * @param lastId       ID of the last instance from previous batch or null if this is a first batch
+     * @param batchSize    maximum count of claiming instances
+     * @return IDs of claimed workflow instances
+     */
+    List<UUID> claim(@Nullable Date lastCreateTs, @Nullable UUID lastId, int batchSize);
+
+    /**
+     * Check in current transaction what lease held by current node is still valid (not expired and not taken by another node).
+     * If leasing is enabled and current node does not hold lease of the instance it is not valid.
+     *
+     * @param instanceId workflow instance ID
+     * @return is lease valid
+     */
+    boolean isValid(UUID instanceId);
+
+    /**
+     * @return currently held by the node leases with their fencing tokens
+     */
+    Map<UUID, Long> getHeldLeases();
+
+    /**
+     * Prolong all held by current node leases.
+     * INTERNAL: Method should be called only from <p>scheduler</p>
+     */
+    void renewLeases();
+}
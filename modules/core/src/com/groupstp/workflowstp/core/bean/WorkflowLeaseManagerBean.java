@@ -0,0 +1,197 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.ServerInfoAPI;
+import com.haulmont.cuba.core.global.UuidProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base implementation of workflow instances leasing which is using Postgres row locks
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowLeaseManager.NAME)
+public class WorkflowLeaseManagerBean implements WorkflowLeaseManager {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowLeaseManagerBean.class);
+
+    protected static final int RENEW_CHUNK_SIZE = 100;
+
+    @Inject
+    protected Persistence persistence;
+    @Inject
+    protected ServerInfoAPI serverInfo;
+
+    @Inject
+    protected WorkflowConfig config;
+
+    /**
+     * Held by current node leases with their fencing tokens
+     */
+    protected final Map<UUID, Long> held = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getLeaseEnable());
+    }
+
+    @Override
+    public String getOwner() {
+        return serverInfo.getServerId();
+    }
+
+    @Override
+    public boolean acquire(UUID instanceId, boolean force) {
+        Preconditions.checkNotNullArgument(instanceId);
+
+        String sql = "update WFSTP_WORKFLOW_INSTANCE set " +
+                "LEASE_TOKEN = case when LEASE_OWNER = ? then LEASE_TOKEN else coalesce(LEASE_TOKEN, 0) + 1 end, " +
+                "LEASE_OWNER = ?, " +
+                "LEASE_EXPIRES = current_timestamp + ? * interval '1 second' " +
+                "where ID = ?" +
+                (force ? "" : " and (LEASE_OWNER is null or LEASE_OWNER = ? or LEASE_EXPIRES < current_timestamp)") +
+                " returning LEASE_TOKEN";
+        String owner = getOwner();
+        Object[] params = force ?
+                new Object[]{owner, owner, getLeaseTimeoutSec(), instanceId} :
+                new Object[]{owner, owner, getLeaseTimeoutSec(), instanceId, owner};
+
+        Long token = execute(connection -> new QueryRunner().query(connection, sql, params, rs -> rs.next() ? rs.getLong(1) : null));
+        if (token == null) {
+            log.debug("Workflow instance {} is leased by another node", instanceId);
+            return false;
+        }
+        held.put(instanceId, token);
+        return true;
+    }
+
+    @Override
+    public void release(UUID instanceId) {
+        Preconditions.checkNotNullArgument(instanceId);
+
+        Long token = held.remove(instanceId);
+        if (token != null) {
+            execute(connection -> new QueryRunner().update(connection,
+                    "update WFSTP_WORKFLOW_INSTANCE set LEASE_OWNER = null, LEASE_EXPIRES = null " +
+                            "where ID = ? and LEASE_OWNER = ? and LEASE_TOKEN = ?",
+                    new Object[]{instanceId, getOwner(), token}));
+        }
+    }
+
+    @Override
+    public List<UUID> claim(@Nullable Date lastCreateTs, @Nullable UUID lastId, int batchSize) {
+        boolean first = lastCreateTs == null || lastId == null;
+
+        String sql = "update WFSTP_WORKFLOW_INSTANCE set " +
+                "LEASE_OWNER = ?, " +
+                "LEASE_EXPIRES = current_timestamp + ? * interval '1 second', " +
+                "LEASE_TOKEN = coalesce(LEASE_TOKEN, 0) + 1 " +
+                "where ID in (select ID from WFSTP_WORKFLOW_INSTANCE " +
+                "where END_DATE is null and ERROR_ is null and DELETE_TS is null and NEXT_WAKEUP_AT <= current_timestamp and " +
+                "(LEASE_OWNER is null or LEASE_EXPIRES < current_timestamp) " +
+                (first ? "" : "and (CREATE_TS > ? or (CREATE_TS = ? and ID > ?)) ") +
+                "order by CREATE_TS, ID limit ? for update skip locked) " +
+                "returning ID, LEASE_TOKEN";
+        Object[] params = first ?
+                new Object[]{getOwner(), getLeaseTimeoutSec(), batchSize} :
+                new Object[]{getOwner(), getLeaseTimeoutSec(),
+                        new Timestamp(lastCreateTs.getTime()), new Timestamp(lastCreateTs.getTime()), lastId, batchSize};
+
+        Map<UUID, Long> claimed = execute(connection -> new QueryRunner().query(connection, sql, params, rs -> {
+            Map<UUID, Long> result = new HashMap<>();
+            while (rs.next()) {
+                result.put(UuidProvider.fromString(rs.getString(1)), rs.getLong(2));
+            }
+            return result;
+        }));
+        held.putAll(claimed);
+        return new ArrayList<>(claimed.keySet());
+    }
+
+    @Override
+    public boolean isValid(UUID instanceId) {
+        Preconditions.checkNotNullArgument(instanceId);
+
+        Long token = held.get(instanceId);
+        if (token == null) {
+            //lease was released or never acquired by current node
+            return !isEnabled();
+        }
+        try (Transaction tr = persistence.getTransaction()) {
+            boolean valid = new QueryRunner().query(persistence.getEntityManager().getConnection(),
+                    "select LEASE_OWNER, LEASE_TOKEN from WFSTP_WORKFLOW_INSTANCE where ID = ? for update",
+                    new Object[]{instanceId},
+                    rs -> rs.next() && Objects.equals(getOwner(), rs.getString(1)) && Objects.equals(token, rs.getLong(2)));
+            tr.commit();
+            return valid;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to check workflow instance lease", e);
+        }
+    }
+
+    @Override
+    public Map<UUID, Long> getHeldLeases() {
+        return Collections.unmodifiableMap(held);
+    }
+
+    @Override
+    public void renewLeases() {
+        if (!isEnabled() || held.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(held.keySet());
+        for (int i = 0; i < ids.size(); i += RENEW_CHUNK_SIZE) {
+            List<UUID> chunk = ids.subList(i, Math.min(i + RENEW_CHUNK_SIZE, ids.size()));
+
+            Object[] params = new Object[chunk.size() + 2];
+            params[0] = getLeaseTimeoutSec();
+            params[1] = getOwner();
+            for (int j = 0; j < chunk.size(); j++) {
+                params[j + 2] = chunk.get(j);
+            }
+            try {
+                execute(connection -> new QueryRunner().update(connection,
+                        "update WFSTP_WORKFLOW_INSTANCE set LEASE_EXPIRES = current_timestamp + ? * interval '1 second' " +
+                                "where LEASE_OWNER = ? and ID in (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")",
+                        params));
+            } catch (Exception e) {
+                log.error("Failed to renew workflow instances leases", e);
+            }
+        }
+    }
+
+    protected int getLeaseTimeoutSec() {
+        Integer timeout = config.getLeaseTimeoutSec();
+        return timeout == null || timeout <= 0 ? 600 : timeout;
+    }
+
+    /**
+     * Execute provided sql logic in a separate transaction
+     */
+    protected <T> T execute(SqlCallable<T> callable) {
+        try (Transaction tr = persistence.createTransaction()) {
+            T result = callable.call(persistence.getEntityManager().getConnection());
+            tr.commit();
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to perform workflow instance lease operation", e);
+        }
+    }
+
+    protected interface SqlCallable<T> {
+        T call(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,75 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.dto.WorkflowMetric;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Workflow engine metrics: counters, gauges and latency histograms with optional tag (workflow, stage and etc.)
+ *
+ * @author adiatullin
+ */
+public interface WorkflowMetricsRegistry {
+    String NAME = "wfstp_WorkflowMetricsRegistry";
+
+    String ITERATE = "workflow.iterate";
+    String FAILURES = "workflow.failures";
+    String STALLED = "workflow.stalled";
+    String STAGE_GROOVY = "stage.groovy";
+    String STAGE_DELEGATE = "stage.delegate";
+    String STAGE_TIMEOUTS = "stage.timeouts";
+    String STAGE_THROTTLED = "stage.throttled";
+    String DIRECTION_GROOVY = "direction.groovy";
+    String DIRECTION_SQL = "direction.sql";
+    String DIRECTION_SQL_FUSED = "direction.sql.fused";
+    String DIRECTION_MEMO_HITS = "direction.memo.hits";
+    String HEARTBEAT_DURATION = "heartbeat.duration";
+    String HEARTBEAT_INSTANCES = "heartbeat.instances";
+    String LOCK_CONTENTION = "lock.contention";
+
+    /**
+     * Increment counter
+     *
+     * @param name counter name
+     * @param tag  counter tag
+     */
+    void increment(String name, @Nullable String tag);
+
+    /**
+     * Record value into histogram
+     *
+     * @param name  histogram name
+     * @param tag   histogram tag
+     * @param value recording value, milliseconds for latencies
+     */
+    void record(String name, @Nullable String tag, long value);
+
+    /**
+     * Register gauge which value is calculated on each metrics snapshot
+     *
+     * @param name  gauge name
+     * @param gauge value supplier
+     */
+    void gauge(String name, Supplier<Number> gauge);
+
+    /**
+     * Register tagged gauge which value is calculated on each metrics snapshot
+     *
+     * @param name  gauge name
+     * @param tag   gauge tag
+     * @param gauge value supplier
+     */
+    void gauge(String name, @Nullable String tag, Supplier<Number> gauge);
+
+    /**
+     * @return snapshot of all metrics sorted by name and tag
+     */
+    List<WorkflowMetric> getMetrics();
+
+    /**
+     * Reset all counters and histograms
+     */
+    void reset();
+}
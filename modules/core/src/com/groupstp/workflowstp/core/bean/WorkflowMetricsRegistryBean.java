@@ -0,0 +1,186 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.dto.WorkflowMetric;
+import com.haulmont.bali.util.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Base in memory implementation of workflow engine metrics with fixed buckets histograms
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowMetricsRegistry.NAME)
+public class WorkflowMetricsRegistryBean implements WorkflowMetricsRegistry {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowMetricsRegistryBean.class);
+
+    /**
+     * Maximum count of different metrics, values of new tags above the limit are recorded as one <p>other</p> tag
+     */
+    protected static final int MAX_METRICS = 5000;
+    protected static final String OTHER_TAG = "other";
+
+    /**
+     * Histogram buckets upper bounds
+     */
+    protected static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 300000, Long.MAX_VALUE};
+
+    protected final Map<Key, LongAdder> counters = new ConcurrentHashMap<>();
+    protected final Map<Key, Histogram> histograms = new ConcurrentHashMap<>();
+    protected final Map<Key, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(String name, @Nullable String tag) {
+        Preconditions.checkNotNullArgument(name);
+
+        counters.computeIfAbsent(key(name, tag, counters), k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void record(String name, @Nullable String tag, long value) {
+        Preconditions.checkNotNullArgument(name);
+
+        histograms.computeIfAbsent(key(name, tag, histograms), k -> new Histogram()).record(Math.max(0, value));
+    }
+
+    @Override
+    public void gauge(String name, Supplier<Number> gauge) {
+        gauge(name, null, gauge);
+    }
+
+    @Override
+    public void gauge(String name, @Nullable String tag, Supplier<Number> gauge) {
+        Preconditions.checkNotNullArgument(name);
+        Preconditions.checkNotNullArgument(gauge);
+
+        gauges.put(new Key(name, tag), gauge);
+    }
+
+    @Override
+    public List<WorkflowMetric> getMetrics() {
+        List<WorkflowMetric> result = new ArrayList<>();
+        for (Map.Entry<Key, LongAdder> entry : counters.entrySet()) {
+            result.add(new WorkflowMetric(entry.getKey().name, entry.getKey().tag, WorkflowMetric.Type.COUNTER,
+                    0, entry.getValue().sum(), 0, 0, 0, 0));
+        }
+        for (Map.Entry<Key, Supplier<Number>> entry : gauges.entrySet()) {
+            Number value;
+            try {
+                value = entry.getValue().get();
+            } catch (Exception e) {
+                log.warn("Failed to calculate workflow metric {}", entry.getKey().name, e);
+                continue;
+            }
+            result.add(new WorkflowMetric(entry.getKey().name, entry.getKey().tag, WorkflowMetric.Type.GAUGE,
+                    0, value == null ? 0 : value.doubleValue(), 0, 0, 0, 0));
+        }
+        for (Map.Entry<Key, Histogram> entry : histograms.entrySet()) {
+            result.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        result.sort(Comparator.comparing(WorkflowMetric::getName)
+                .thenComparing(WorkflowMetric::getTag, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    protected Key key(String name, @Nullable String tag, Map<Key, ?> metrics) {
+        Key key = new Key(name, tag);
+        if (tag != null && metrics.size() >= MAX_METRICS && !metrics.containsKey(key)) {
+            return new Key(name, OTHER_TAG);
+        }
+        return key;
+    }
+
+    protected static final class Key {
+        private final String name;
+        private final String tag;
+
+        private Key(String name, @Nullable String tag) {
+            this.name = name;
+            this.tag = tag;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return name.equals(key.name) && Objects.equals(tag, key.tag);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, tag);
+        }
+    }
+
+    protected static class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        protected Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        protected void record(long value) {
+            int index = Arrays.binarySearch(BOUNDS, value);
+            buckets[index >= 0 ? index : -index - 1].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        protected WorkflowMetric snapshot(Key key) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            long maxValue = max.get();
+            return new WorkflowMetric(key.name, key.tag, WorkflowMetric.Type.HISTOGRAM, total, sum.sum(), maxValue,
+                    percentile(counts, total, 0.5, maxValue),
+                    percentile(counts, total, 0.95, maxValue),
+                    percentile(counts, total, 0.99, maxValue));
+        }
+
+        /**
+         * @return upper bound of the bucket which contains requested percentile
+         */
+        private long percentile(long[] counts, long total, double percentile, long maxValue) {
+            if (total == 0) {
+                return 0;
+            }
+            long threshold = (long) Math.ceil(total * percentile);
+            long accumulated = 0;
+            for (int i = 0; i < counts.length; i++) {
+                accumulated += counts[i];
+                if (accumulated >= threshold) {
+                    return Math.min(BOUNDS[i], maxValue);
+                }
+            }
+            return maxValue;
+        }
+    }
+}
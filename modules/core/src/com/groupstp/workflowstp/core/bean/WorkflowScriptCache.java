@@ -0,0 +1,63 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.haulmont.cuba.core.entity.StandardEntity;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache of prepared and compiled workflow groovy scripts.
+ * Scripts are cached by owner entity ID, version and script kind.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowScriptCache {
+    String NAME = "wfstp_WorkflowScriptCache";
+
+    String DIRECTION_CONDITION = "direction";
+    String DEFINITION_CONDITION = "definition";
+    String STAGE_EXECUTION = "stage";
+
+    /**
+     * Evaluate groovy script of provided entity
+     *
+     * @param owner   entity which holding the script
+     * @param kind    kind of the script
+     * @param script  original script text
+     * @param binding script variables
+     * @return script result
+     */
+    Object evaluate(StandardEntity owner, String kind, String script, Map<String, Object> binding);
+
+    /**
+     * Remove all cached scripts of provided entity
+     *
+     * @param ownerId entity ID
+     */
+    void invalidate(UUID ownerId);
+
+    /**
+     * Remove all cached scripts
+     */
+    void invalidateAll();
+
+    /**
+     * @return count of cached scripts
+     */
+    int getSize();
+
+    /**
+     * @return count of evaluations with already compiled script
+     */
+    long getHitCount();
+
+    /**
+     * @return count of evaluations which required script compilation
+     */
+    long getMissCount();
+
+    /**
+     * @return total time in milliseconds spent to scripts compilation
+     */
+    long getCompileTimeMs();
+}
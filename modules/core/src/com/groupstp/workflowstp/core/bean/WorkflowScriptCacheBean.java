@@ -0,0 +1,180 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.bean.WorkflowSugarProcessor;
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.groupstp.workflowstp.event.WorkflowDefinitionChangedEvent;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.entity.StandardEntity;
+import com.haulmont.cuba.core.global.Scripting;
+import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.Script;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base implementation of workflow scripts cache with LRU eviction
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowScriptCache.NAME)
+public class WorkflowScriptCacheBean implements WorkflowScriptCache {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowScriptCacheBean.class);
+
+    @Inject
+    protected Scripting scripting;
+    @Inject
+    protected WorkflowSugarProcessor sugar;
+
+    @Inject
+    protected WorkflowConfig config;
+
+    protected final Map<Key, CompiledScript> cache = new LinkedHashMap<Key, CompiledScript>(16, 0.75f, true) {
+        private static final long serialVersionUID = 6035238119447946170L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, CompiledScript> eldest) {
+            return size() > Math.max(1, config.getScriptCacheSize());
+        }
+    };
+
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder compileTime = new LongAdder();
+
+    @Override
+    public Object evaluate(StandardEntity owner, String kind, String script, Map<String, Object> binding) {
+        Preconditions.checkNotNullArgument(owner);
+        Preconditions.checkNotNullArgument(kind);
+        Preconditions.checkNotNullArgument(script);
+
+        if (owner.getVersion() == null) {//not persisted entity, nothing to cache
+            return scripting.evaluateGroovy(sugar.prepareScript(script), binding);
+        }
+
+        Key key = new Key(owner.getId(), owner.getVersion(), kind);
+        CompiledScript compiled;
+        synchronized (cache) {
+            compiled = cache.get(key);
+        }
+        //entity could be changed in memory without saving
+        if (compiled == null || !compiled.original.equals(script)) {
+            misses.increment();
+            compiled = compile(script);
+            synchronized (cache) {
+                cache.put(key, compiled);
+            }
+        } else {
+            hits.increment();
+        }
+
+        //script instances are not thread safe, create new one on each evaluation
+        Script instance = InvokerHelper.createScript(compiled.scriptClass, new Binding(new HashMap<>(binding)));
+        return instance.run();
+    }
+
+    @Override
+    public void invalidate(UUID ownerId) {
+        Preconditions.checkNotNullArgument(ownerId);
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> ownerId.equals(key.ownerId));
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getCompileTimeMs() {
+        return compileTime.sum();
+    }
+
+    @EventListener
+    public void onDefinitionChanged(WorkflowDefinitionChangedEvent event) {
+        invalidate(event.getEntityId());
+    }
+
+    protected CompiledScript compile(String script) {
+        long start = System.currentTimeMillis();
+        try {
+            //separate class loader allows to unload evicted script classes
+            GroovyClassLoader classLoader = new GroovyClassLoader(scripting.getClassLoader());
+            //noinspection unchecked
+            Class<? extends Script> scriptClass = classLoader.parseClass(sugar.prepareScript(script));
+            return new CompiledScript(script, scriptClass);
+        } finally {
+            long time = System.currentTimeMillis() - start;
+            compileTime.add(time);
+            log.debug("Workflow script compiled in {} ms", time);
+        }
+    }
+
+    protected static class Key {
+        private final UUID ownerId;
+        private final Integer version;
+        private final String kind;
+
+        public Key(UUID ownerId, Integer version, String kind) {
+            this.ownerId = ownerId;
+            this.version = version;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(ownerId, key.ownerId) &&
+                    Objects.equals(version, key.version) &&
+                    Objects.equals(kind, key.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ownerId, version, kind);
+        }
+    }
+
+    protected static class CompiledScript {
+        private final String original;
+        private final Class<? extends Script> scriptClass;
+
+        public CompiledScript(String original, Class<? extends Script> scriptClass) {
+            this.original = original;
+            this.scriptClass = scriptClass;
+        }
+    }
+}
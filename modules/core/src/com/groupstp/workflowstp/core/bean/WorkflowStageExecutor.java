@@ -0,0 +1,36 @@
+package com.groupstp.workflowstp.core.bean;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Executor of algorithm stages logic with bounded execution time
+ *
+ * @author adiatullin
+ */
+public interface WorkflowStageExecutor {
+    String NAME = "wfstp_WorkflowStageExecutor";
+
+    /**
+     * Perform stage logic in a separate interruptible thread and wait for the result.
+     * Current caller security context will be used for execution.
+     *
+     * @param stageName executing stage name
+     * @param task      stage logic
+     * @param timeoutMs maximum execution time in milliseconds
+     * @param onFinish  callback which is called once when stage logic is actually finished, cancelled before start
+     *                  or rejected. Logic which is ignoring interruption can be finished long after timeout.
+     * @return stage logic result
+     * @throws TimeoutException           if execution time elapsed, executing thread is interrupted in this case
+     * @throws RejectedExecutionException if all stage threads are busy
+     * @throws Exception                  exception thrown by the stage logic
+     */
+    <T> T execute(String stageName, Callable<T> task, long timeoutMs, @Nullable Runnable onFinish) throws Exception;
+
+    /**
+     * @return count of currently executing stages
+     */
+    int getActiveCount();
+}
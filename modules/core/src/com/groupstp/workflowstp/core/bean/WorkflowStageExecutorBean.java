@@ -0,0 +1,174 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base implementation of stages executor with bounded count of threads. Timed out executions which are ignoring
+ * interruption keep their threads, so they are bounded by the pool size too.
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowStageExecutor.NAME)
+public class WorkflowStageExecutorBean implements WorkflowStageExecutor {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowStageExecutorBean.class);
+
+    @Inject
+    protected WorkflowMetricsRegistry metrics;
+
+    @Inject
+    protected WorkflowConfig config;
+
+    protected ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, config.getStageThreadCount() == null ? 20 : config.getStageThreadCount());
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new StageThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+
+        metrics.gauge("stage.executing", this::getActiveCount);
+    }
+
+    @Override
+    public <T> T execute(String stageName, Callable<T> task, long timeoutMs, @Nullable Runnable onFinish) throws Exception {
+        Preconditions.checkNotNullArgument(stageName);
+        Preconditions.checkNotNullArgument(task);
+
+        StageExecution<T> execution = new StageExecution<>(task, AppContext.getSecurityContext(), onFinish);
+        try {
+            executor.execute(execution);
+        } catch (RejectedExecutionException e) {
+            log.debug("Execution of stage {} rejected, all stage threads are busy", stageName);
+            execution.finish();
+            throw e;
+        }
+        try {
+            return execution.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            execution.cancel();
+            metrics.increment(WorkflowMetricsRegistry.STAGE_TIMEOUTS, stageName);
+            log.warn("Execution of stage {} cancelled after {} ms", stageName, timeoutMs);
+            throw e;
+        } catch (InterruptedException e) {
+            execution.cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Stage logic execution which notifies about it's actual finish
+     */
+    protected static class StageExecution<T> implements Runnable {
+        private final Callable<T> task;
+        private final SecurityContext securityContext;
+        private final Runnable onFinish;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Thread thread;
+        private boolean cancelled;
+        private boolean finished;
+
+        protected StageExecution(Callable<T> task, SecurityContext securityContext, @Nullable Runnable onFinish) {
+            this.task = task;
+            this.securityContext = securityContext;
+            this.onFinish = onFinish;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    result.cancel(false);
+                } else {
+                    thread = Thread.currentThread();
+                }
+            }
+            try {
+                if (!result.isDone()) {
+                    AppContext.setSecurityContext(securityContext);
+                    try {
+                        result.complete(task.call());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        AppContext.setSecurityContext(null);
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    //interruption is addressed to this execution only
+                    Thread.interrupted();
+                }
+                finish();
+            }
+        }
+
+        protected synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        protected void finish() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            if (onFinish != null) {
+                try {
+                    onFinish.run();
+                } catch (Exception e) {
+                    log.error("Failed to finish stage execution", e);
+                }
+            }
+        }
+    }
+
+    protected static class StageThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "wfstp-stage-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
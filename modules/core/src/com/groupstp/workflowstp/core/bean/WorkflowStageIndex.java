@@ -0,0 +1,47 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.dto.WorkflowStageAccess;
+import com.groupstp.workflowstp.entity.Stage;
+
+import javax.annotation.Nullable;
+
+/**
+ * Process-wide index of stages by workflow entity name and stage name with pre-resolved actors and viewers.
+ * Indexed stages are shared between threads and must be used only for reading.
+ * Index is invalidated on any changes of stages in the whole cluster.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowStageIndex {
+    String NAME = "wfstp_WorkflowStageIndex";
+
+    /**
+     * Get stage loaded by <p>stage-process</p> view. All stages of entity are loaded if they are not indexed yet.
+     *
+     * @param entityName workflow entity name
+     * @param name       stage name
+     * @return stage or null if it not exist
+     */
+    @Nullable
+    Stage getStage(String entityName, String name);
+
+    /**
+     * Get pre-resolved actors and viewers of the stage
+     *
+     * @param entityName workflow entity name
+     * @param name       stage name
+     * @return stage access or null if stage not exist
+     */
+    @Nullable
+    WorkflowStageAccess getAccess(String entityName, String name);
+
+    /**
+     * Remove all indexed stages on all cluster nodes
+     */
+    void invalidateAll();
+
+    /**
+     * @return count of indexed workflow entities
+     */
+    int getSize();
+}
@@ -0,0 +1,148 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.dto.WorkflowStageAccess;
+import com.groupstp.workflowstp.entity.Stage;
+import com.groupstp.workflowstp.event.WorkflowDefinitionChangedEvent;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
+import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base implementation of stages index
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowStageIndex.NAME)
+public class WorkflowStageIndexBean implements WorkflowStageIndex {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowStageIndexBean.class);
+
+    @Inject
+    protected DataManager dataManager;
+    @Inject
+    protected Metadata metadata;
+    @Inject
+    protected ClusterManagerAPI clusterManager;
+
+    /**
+     * Indexed stages by workflow entity name and stage name
+     */
+    protected final Map<String, Map<String, Entry>> index = new ConcurrentHashMap<>();
+    /**
+     * Invalidations counter, stages loaded before invalidation must not be indexed
+     */
+    protected final AtomicLong generation = new AtomicLong();
+    /**
+     * Guards generation check with indexing against concurrent invalidation
+     */
+    protected final Object lock = new Object();
+
+    @PostConstruct
+    public void init() {
+        clusterManager.addListener(InvalidateMessage.class, new ClusterListenerAdapter<InvalidateMessage>() {
+            @Override
+            public void receive(InvalidateMessage message) {
+                invalidateLocal();
+            }
+        });
+    }
+
+    @Nullable
+    @Override
+    public Stage getStage(String entityName, String name) {
+        Entry entry = getEntry(entityName, name);
+        return entry == null ? null : entry.stage;
+    }
+
+    @Nullable
+    @Override
+    public WorkflowStageAccess getAccess(String entityName, String name) {
+        Entry entry = getEntry(entityName, name);
+        return entry == null ? null : entry.access;
+    }
+
+    @Override
+    public void invalidateAll() {
+        invalidateLocal();
+        clusterManager.send(new InvalidateMessage());
+    }
+
+    @Override
+    public int getSize() {
+        return index.size();
+    }
+
+    @EventListener
+    public void onDefinitionChanged(WorkflowDefinitionChangedEvent event) {
+        if (event.getEntityName().equals(metadata.getClassNN(Stage.class).getName())) {
+            invalidateAll();
+        }
+    }
+
+    @Nullable
+    protected Entry getEntry(String entityName, String name) {
+        Preconditions.checkNotNullArgument(entityName);
+        Preconditions.checkNotNullArgument(name);
+
+        Map<String, Entry> stages = index.get(entityName);
+        if (stages == null) {
+            long currentGeneration = generation.get();
+
+            List<Stage> list = dataManager.load(Stage.class)
+                    .query("select e from wfstp$Stage e where e.entityName = :entityName order by e.createTs")
+                    .parameter("entityName", entityName)
+                    .view("stage-process")
+                    .list();
+            stages = new HashMap<>(list.size());
+            for (Stage stage : list) {
+                stages.putIfAbsent(stage.getName(), new Entry(stage));
+            }
+            stages = Collections.unmodifiableMap(stages);
+
+            synchronized (lock) {
+                if (generation.get() == currentGeneration) {
+                    index.put(entityName, stages);
+                }
+            }
+            log.debug("Stages of {} indexed", entityName);
+        }
+        return stages.get(name);
+    }
+
+    protected void invalidateLocal() {
+        synchronized (lock) {
+            generation.incrementAndGet();
+            index.clear();
+        }
+    }
+
+    protected static class Entry {
+        protected final Stage stage;
+        protected final WorkflowStageAccess access;
+
+        protected Entry(Stage stage) {
+            this.stage = stage;
+            this.access = new WorkflowStageAccess(stage);
+        }
+    }
+
+    /**
+     * Cluster message about stages changes
+     */
+    public static class InvalidateMessage implements Serializable {
+        private static final long serialVersionUID = -7006217813914852418L;
+    }
+}
@@ -0,0 +1,35 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.Stage;
+
+/**
+ * Limiter of algorithm stages concurrent executions and executions rate.
+ * Limits are enforced per middleware node.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowStageLimiter {
+    String NAME = "wfstp_WorkflowStageLimiter";
+
+    /**
+     * Take permit to execute stage logic. Taken permit must be released by {@link #release(Stage)}
+     * when the logic is actually finished, even if caller stopped waiting of it by timeout.
+     *
+     * @param stage executing stage
+     * @return false if stage limits are exhausted and execution should be deferred
+     */
+    boolean tryAcquire(Stage stage);
+
+    /**
+     * Release permit taken by {@link #tryAcquire(Stage)}
+     *
+     * @param stage executed stage
+     */
+    void release(Stage stage);
+
+    /**
+     * @param stage deferred stage
+     * @return delay in milliseconds after which deferred execution should be tried again
+     */
+    long getRetryDelayMs(Stage stage);
+}
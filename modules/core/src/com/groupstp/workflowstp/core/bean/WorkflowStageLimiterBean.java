@@ -0,0 +1,158 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.entity.Stage;
+import com.haulmont.bali.util.Preconditions;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base implementation of stages limiter with concurrent executions counter and token bucket per stage
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowStageLimiter.NAME)
+public class WorkflowStageLimiterBean implements WorkflowStageLimiter {
+
+    /**
+     * Retry delay of stages which are limited by concurrent executions only
+     */
+    protected static final long CONCURRENCY_RETRY_DELAY_MS = 1000;
+
+    @Inject
+    protected WorkflowMetricsRegistry metrics;
+
+    protected final Map<UUID, Limiter> limiters = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean tryAcquire(Stage stage) {
+        Preconditions.checkNotNullArgument(stage);
+
+        int maxConcurrent = getMaxConcurrent(stage);
+        int rate = getRate(stage);
+        if (maxConcurrent <= 0 && rate <= 0) {
+            return true;
+        }
+        if (!getLimiter(stage).tryAcquire(maxConcurrent, rate)) {
+            metrics.increment(WorkflowMetricsRegistry.STAGE_THROTTLED, stage.getName());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void release(Stage stage) {
+        Preconditions.checkNotNullArgument(stage);
+
+        if (getMaxConcurrent(stage) > 0) {
+            Limiter limiter = limiters.get(stage.getId());
+            if (limiter != null) {
+                limiter.release();
+            }
+        }
+    }
+
+    @Override
+    public long getRetryDelayMs(Stage stage) {
+        Preconditions.checkNotNullArgument(stage);
+
+        long delay = CONCURRENCY_RETRY_DELAY_MS;
+        int rate = getRate(stage);
+        if (rate > 0) {
+            Limiter limiter = limiters.get(stage.getId());
+            delay = Math.max(limiter == null ? 0 : limiter.getTokenDelayMs(rate), TimeUnit.SECONDS.toMillis(1) / rate);
+        }
+        //spread deferred executions to not wake up all of them at the same time
+        return delay + ThreadLocalRandom.current().nextLong(delay + 1);
+    }
+
+    protected Limiter getLimiter(Stage stage) {
+        return limiters.computeIfAbsent(stage.getId(), id -> {
+            Limiter limiter = new Limiter();
+            metrics.gauge("stage.concurrent", stage.getName(), limiter::getActive);
+            return limiter;
+        });
+    }
+
+    protected int getMaxConcurrent(Stage stage) {
+        return stage.getMaxConcurrentExecutions() == null ? 0 : stage.getMaxConcurrentExecutions();
+    }
+
+    protected int getRate(Stage stage) {
+        return stage.getExecutionsPerSecond() == null ? 0 : stage.getExecutionsPerSecond();
+    }
+
+    /**
+     * Concurrent executions counter and executions token bucket of one stage.
+     * Limits are passed on each call, so stage changes are applied without limiter recreation.
+     */
+    protected static class Limiter {
+        private final AtomicInteger active = new AtomicInteger();
+
+        private double tokens = -1;
+        private long refillTs;
+
+        public boolean tryAcquire(int maxConcurrent, int rate) {
+            if (maxConcurrent > 0) {
+                int current;
+                do {
+                    current = active.get();
+                    if (current >= maxConcurrent) {
+                        return false;
+                    }
+                } while (!active.compareAndSet(current, current + 1));
+            }
+            if (rate > 0 && !takeToken(rate)) {
+                if (maxConcurrent > 0) {
+                    release();
+                }
+                return false;
+            }
+            return true;
+        }
+
+        public void release() {
+            active.updateAndGet(value -> Math.max(0, value - 1));
+        }
+
+        public int getActive() {
+            return active.get();
+        }
+
+        /**
+         * @return time in milliseconds until next token will be available
+         */
+        public synchronized long getTokenDelayMs(int rate) {
+            refill(rate);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * 1000 / rate);
+        }
+
+        private synchronized boolean takeToken(int rate) {
+            refill(rate);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Bucket capacity is one second of executions
+         */
+        private void refill(int rate) {
+            long now = System.nanoTime();
+            if (tokens < 0) {
+                tokens = rate;
+            } else {
+                tokens = Math.min(rate, tokens + (now - refillTs) * rate / 1e9);
+            }
+            refillTs = now;
+        }
+    }
+}
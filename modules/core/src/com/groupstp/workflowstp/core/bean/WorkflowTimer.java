@@ -0,0 +1,48 @@
+package com.groupstp.workflowstp.core.bean;
+
+import javax.annotation.Nullable;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * In-process timer which wakes up waiting workflow instances exactly when their step timeout or repeat time comes.
+ * Timers are not persisted, they are rebuilt from workflow instances next wakeup time on startup.
+ *
+ * @author adiatullin
+ */
+public interface WorkflowTimer {
+    String NAME = "wfstp_WorkflowTimer";
+
+    /**
+     * @return is timer enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Schedule (or reschedule) workflow instance wakeup. Wakeups outside of the timer horizon are ignored,
+     * they will be scheduled later by reloading.
+     *
+     * @param instanceId workflow instance ID
+     * @param time       wakeup time or null to cancel wakeup
+     */
+    void schedule(UUID instanceId, @Nullable Date time);
+
+    /**
+     * Cancel scheduled wakeup of workflow instance
+     *
+     * @param instanceId workflow instance ID
+     */
+    void cancel(UUID instanceId);
+
+    /**
+     * @return count of currently scheduled wakeups
+     */
+    int getScheduledCount();
+
+    /**
+     * Load from the database and schedule not overdue wakeups inside of the timer horizon, nearest first and limited by count.
+     * Overdue wakeups are not loaded, such instances are processed by heartbeat.
+     * INTERNAL: Method should be called only on startup and from heartbeat
+     */
+    void reload();
+}
@@ -0,0 +1,240 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.global.ValueLoadContext;
+import com.haulmont.cuba.core.sys.events.AppContextStartedEvent;
+import com.haulmont.cuba.security.app.Authentication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base implementation of workflow timer which is using {@link DelayQueue} with one dispatching thread
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowTimer.NAME)
+public class WorkflowTimerBean implements WorkflowTimer {
+    private static final Logger log = LoggerFactory.getLogger(WorkflowTimerBean.class);
+
+    protected static final int RELOAD_PAGE_SIZE = 1000;
+
+    @Inject
+    protected DataManager dataManager;
+    @Inject
+    protected TimeSource timeSource;
+    @Inject
+    protected Authentication authentication;
+    @Inject
+    protected WorkflowWorker worker;
+
+    @Inject
+    protected WorkflowConfig config;
+
+    protected final DelayQueue<Wakeup> queue = new DelayQueue<>();
+    /**
+     * Actual wakeup by workflow instance, outdated wakeups in the queue are skipped
+     */
+    protected final Map<UUID, Wakeup> scheduled = new ConcurrentHashMap<>();
+
+    protected volatile Thread dispatcher;
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getTimerEnable());
+    }
+
+    @Override
+    public void schedule(UUID instanceId, @Nullable Date time) {
+        Preconditions.checkNotNullArgument(instanceId);
+
+        if (!isEnabled()) {
+            return;
+        }
+        if (time == null) {
+            cancel(instanceId);
+            return;
+        }
+        if (time.getTime() > timeSource.currentTimeMillis() + getHorizonMs()) {
+            unschedule(instanceId);
+            return;
+        }
+        Wakeup wakeup = new Wakeup(instanceId, time.getTime());
+        Wakeup previous = scheduled.put(instanceId, wakeup);
+        queue.put(wakeup);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+
+        startDispatcher();
+    }
+
+    @Override
+    public void cancel(UUID instanceId) {
+        Preconditions.checkNotNullArgument(instanceId);
+        unschedule(instanceId);
+    }
+
+    /**
+     * Forget scheduled wakeup and drop it from the queue to not keep dead entries until they fire
+     */
+    protected void unschedule(UUID instanceId) {
+        Wakeup previous = scheduled.remove(instanceId);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+    }
+
+    @Override
+    public int getScheduledCount() {
+        return scheduled.size();
+    }
+
+    @Override
+    public void reload() {
+        if (!isEnabled()) {
+            return;
+        }
+        //overdue instances are processed by heartbeat, only future wakeups inside of the horizon are loaded
+        long now = timeSource.currentTimeMillis();
+        Date horizon = new Date(now + getHorizonMs());
+        int limit = getReloadLimit();
+
+        Date lastTime = new Date(now);
+        UUID lastId = null;
+        int loaded = 0;
+        while (loaded < limit) {
+            int pageSize = Math.min(RELOAD_PAGE_SIZE, limit - loaded);
+            ValueLoadContext.Query query = ValueLoadContext.createQuery("select e.id, e.nextWakeupAt from wfstp$WorkflowInstance e " +
+                    "where e.endDate is null and e.error is null and e.nextWakeupAt <= :horizon and " +
+                    (lastId == null ? "e.nextWakeupAt > :lastTime " :
+                            "(e.nextWakeupAt > :lastTime or (e.nextWakeupAt = :lastTime and e.id > :lastId)) ") +
+                    "order by e.nextWakeupAt, e.id")
+                    .setParameter("horizon", horizon)
+                    .setParameter("lastTime", lastTime)
+                    .setMaxResults(pageSize);
+            if (lastId != null) {
+                query.setParameter("lastId", lastId);
+            }
+            List<KeyValueEntity> list = dataManager.loadValues(ValueLoadContext.create()
+                    .setQuery(query)
+                    .addProperty("id")
+                    .addProperty("nextWakeupAt"));
+            for (KeyValueEntity item : list) {
+                UUID id = item.getValue("id");
+                Date time = item.getValue("nextWakeupAt");
+                Wakeup current = scheduled.get(id);
+                if (current == null || current.time != time.getTime()) {
+                    schedule(id, time);
+                }
+                lastId = id;
+                lastTime = time;
+            }
+            loaded += list.size();
+            if (list.size() < pageSize) {
+                break;
+            }
+        }
+        log.debug("Workflow timer reloaded, {} wakeups loaded, {} wakeups scheduled", loaded, scheduled.size());
+    }
+
+    @EventListener(AppContextStartedEvent.class)
+    public void onAppStarted() {
+        if (isEnabled()) {
+            authentication.begin();
+            try {
+                reload();
+            } catch (Exception e) {
+                log.error("Failed to rebuild workflow timer", e);
+            } finally {
+                authentication.end();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = dispatcher;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    protected long getHorizonMs() {
+        Integer horizonSec = config.getTimerHorizonSec();
+        return horizonSec == null || horizonSec <= 0 ? 3600 * 1000L : horizonSec * 1000L;
+    }
+
+    protected int getReloadLimit() {
+        Integer limit = config.getTimerReloadLimit();
+        return limit == null || limit <= 0 ? 10000 : limit;
+    }
+
+    protected void startDispatcher() {
+        if (dispatcher == null) {
+            synchronized (this) {
+                if (dispatcher == null) {
+                    Thread thread = new Thread(this::dispatch, "wfstp-timer");
+                    thread.setDaemon(true);
+                    thread.start();
+                    dispatcher = thread;
+                }
+            }
+        }
+    }
+
+    protected void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Wakeup wakeup;
+            try {
+                wakeup = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (scheduled.remove(wakeup.instanceId, wakeup)) {
+                try {
+                    worker.performWorkflowWakeup(wakeup.instanceId);
+                } catch (Exception e) {
+                    log.error(String.format("Failed to wake up workflow instance %s", wakeup.instanceId), e);
+                }
+            }
+        }
+    }
+
+    protected static class Wakeup implements Delayed {
+        private final UUID instanceId;
+        private final long time;
+
+        public Wakeup(UUID instanceId, long time) {
+            this.instanceId = instanceId;
+            this.time = time;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(time - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(time, ((Wakeup) o).time);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.haulmont.cuba.security.entity.User;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Cached resolving of users by their logins for workflow engine purposes
+ *
+ * @author adiatullin
+ */
+public interface WorkflowUserResolver {
+    String NAME = "wfstp_WorkflowUserResolver";
+
+    /**
+     * Find users by their logins. Not cached logins are loaded by one query.
+     *
+     * @param logins users logins, case insensitive
+     * @return found users with minimal view by lower case logins
+     */
+    Map<String, User> resolve(Collection<String> logins);
+
+    /**
+     * Drop cached users on all cluster nodes
+     */
+    void invalidateAll();
+
+    /**
+     * @return count of cached users
+     */
+    int getSize();
+}
@@ -0,0 +1,133 @@
+package com.groupstp.workflowstp.core.bean;
+
+import com.groupstp.workflowstp.core.listener.WorkflowUserEntityListener;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
+import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.sys.listener.EntityListenerManager;
+import com.haulmont.cuba.security.entity.User;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base implementation of users resolver with bounded in memory cache
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowUserResolver.NAME)
+public class WorkflowUserResolverBean implements WorkflowUserResolver {
+
+    protected static final int CACHE_SIZE = 1000;
+    protected static final int CHUNK_SIZE = 500;
+
+    @Inject
+    protected DataManager dataManager;
+    @Inject
+    protected ClusterManagerAPI clusterManager;
+    @Inject
+    protected EntityListenerManager entityListenerManager;
+
+    protected final Map<String, User> cache = new LinkedHashMap<String, User>(16, 0.75f, true) {
+        private static final long serialVersionUID = -4490918213517716802L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    /**
+     * Invalidations counter, users loaded before invalidation must not be cached
+     */
+    protected final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        entityListenerManager.addListener(User.class, WorkflowUserEntityListener.NAME);
+        clusterManager.addListener(InvalidateMessage.class, new ClusterListenerAdapter<InvalidateMessage>() {
+            @Override
+            public void receive(InvalidateMessage message) {
+                invalidateLocal();
+            }
+        });
+    }
+
+    @Override
+    public Map<String, User> resolve(Collection<String> logins) {
+        Preconditions.checkNotNullArgument(logins);
+
+        Map<String, User> result = new HashMap<>(logins.size());
+        Set<String> missing = new LinkedHashSet<>();
+        synchronized (cache) {
+            for (String login : logins) {
+                if (!StringUtils.isBlank(login)) {
+                    String key = login.toLowerCase();
+                    User user = cache.get(key);
+                    if (user == null) {
+                        missing.add(key);
+                    } else {
+                        result.put(key, user);
+                    }
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            long currentGeneration = generation.get();
+
+            List<String> list = new ArrayList<>(missing);
+            Map<String, User> loaded = new HashMap<>(list.size());
+            for (int i = 0; i < list.size(); i += CHUNK_SIZE) {
+                List<User> users = dataManager.load(User.class)
+                        .query("select e from sec$User e where e.loginLowerCase in :logins")
+                        .parameter("logins", list.subList(i, Math.min(i + CHUNK_SIZE, list.size())))
+                        .view(View.MINIMAL)
+                        .list();
+                for (User user : users) {
+                    loaded.put(user.getLoginLowerCase(), user);
+                }
+            }
+            result.putAll(loaded);
+
+            synchronized (cache) {
+                if (generation.get() == currentGeneration) {
+                    cache.putAll(loaded);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidateAll() {
+        invalidateLocal();
+        clusterManager.send(new InvalidateMessage());
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    protected void invalidateLocal() {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    /**
+     * Cluster message about users changes
+     */
+    public static class InvalidateMessage implements Serializable {
+        private static final long serialVersionUID = -1460937361283713844L;
+    }
+}
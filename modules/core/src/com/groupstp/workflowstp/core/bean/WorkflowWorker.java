@@ -2,11 +2,19 @@ package com.groupstp.workflowstp.core.bean;
 
 import com.groupstp.workflowstp.entity.*;
 import com.groupstp.workflowstp.exception.WorkflowException;
+import com.groupstp.workflowstp.dto.WorkflowBatchResult;
 import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import com.groupstp.workflowstp.dto.WorkflowProcessingInstance;
+import com.groupstp.workflowstp.dto.WorkflowStageAccess;
+import com.groupstp.workflowstp.dto.WorkflowStartResult;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Workflow functional internal component bean
@@ -36,6 +44,29 @@ public interface WorkflowWorker {
      */
     UUID startWorkflow(WorkflowEntity entity, Workflow wf) throws WorkflowException;
 
+    /**
+     * Determinate suitable workflows and start them for several entities. Entities are processed by chunks:
+     * workflow definitions are checked once per chunk and workflow instances with their first tasks are created by batch
+     * if {@code workflow.startBatchInsertEnable} is set. Batch creation doesn't invoke entity listeners, so entities of classes
+     * with registered listeners and all entities if batch creation is disabled are started one by one like {@code startWorkflow}.
+     *
+     * @param entities workflow entities
+     * @return per entity processing report
+     */
+    WorkflowStartResult startWorkflows(Collection<? extends WorkflowEntity> entities);
+
+    /**
+     * Determinate suitable workflows and start them for several entities. Entities are processed by chunks:
+     * workflow definitions are checked once per chunk and workflow instances with their first tasks are created by batch
+     * if {@code workflow.startBatchInsertEnable} is set. Batch creation doesn't invoke entity listeners, so entities of classes
+     * with registered listeners and all entities if batch creation is disabled are started one by one like {@code startWorkflow}.
+     *
+     * @param entities workflow entities
+     * @param listener receiver of each processed chunk report
+     * @return per entity processing report
+     */
+    WorkflowStartResult startWorkflows(Collection<? extends WorkflowEntity> entities, @Nullable Consumer<WorkflowStartResult> listener);
+
     /**
      * Restart failed workflow instance
      *
@@ -70,6 +101,25 @@ public interface WorkflowWorker {
      */
     void moveWorkflow(WorkflowInstance instance, Step step) throws WorkflowException;
 
+    /**
+     * Wake up workflow instance which is stalled because attempts of the current step were exhausted.
+     * Attempts are reset and the instance is continued by the next heartbeat.
+     *
+     * @param instance stalled workflow instance
+     * @throws WorkflowException in case of any unexpected problems
+     */
+    void wakeupWorkflow(WorkflowInstance instance) throws WorkflowException;
+
+    /**
+     * Wait until asynchronous continuations of provided workflow instance are performed.
+     * Useful if asynchronous mode enabled and caller need to know the actual workflow instance state.
+     *
+     * @param instance  workflow instance
+     * @param timeoutMs maximum time to wait in milliseconds
+     * @return true if instance continuations are performed, false if timeout elapsed
+     */
+    boolean await(WorkflowInstance instance, long timeoutMs);
+
     /**
      * Check is current workflow entity processing (processed) or not
      *
@@ -141,6 +191,23 @@ public interface WorkflowWorker {
     @Nullable
     Stage getStage(WorkflowEntity entity);
 
+    /**
+     * Get pre-resolved actors and viewers of the stage from the stages index
+     *
+     * @param stage stage object
+     * @return stage access
+     */
+    WorkflowStageAccess getStageAccess(Stage stage);
+
+    /**
+     * Get active tasks of provided stage for several workflow entities by one query
+     *
+     * @param entities workflow entities of one type
+     * @param stage    processing stage
+     * @return found active tasks, entities without active task of the stage are skipped
+     */
+    List<WorkflowInstanceTask> getWorkflowInstanceTasks(Collection<? extends WorkflowEntity> entities, Stage stage);
+
     /**
      * Complete (if possible) provided workflow task and move workflow instance to the next step
      *
@@ -161,6 +228,17 @@ public interface WorkflowWorker {
      */
     void finishTask(WorkflowInstanceTask task, @Nullable Map<String, String> params, String... performersLogin) throws WorkflowException;
 
+    /**
+     * Complete (if possible) several workflow tasks with additional parameters and move their workflow instances
+     * to the next steps in parallel. Failure of one task doesn't affect another ones.
+     *
+     * @param tasks           workflow instance tasks
+     * @param params          additional workflow execution parameters which must be saved
+     * @param performersLogin task perform users login, or, if nothing passed, only a current user will be used
+     * @return per task processing report
+     */
+    WorkflowBatchResult finishTasks(Collection<WorkflowInstanceTask> tasks, @Nullable Map<String, String> params, String... performersLogin);
+
     /**
      * Get workflow execution context
      *
@@ -201,4 +279,46 @@ public interface WorkflowWorker {
      * INTERNAL: Method should be called only from <p>scheduler</p>
      */
     void performWorkflowHeartbeat();
-}
\ No newline at end of file
+
+    /**
+     * Continue waiting workflow instance which step timeout or repeat time came.
+     * INTERNAL: Method should be called only from <p>workflow timer</p>
+     *
+     * @param instanceId workflow instance ID
+     */
+    void performWorkflowWakeup(UUID instanceId);
+
+    /**
+     * @return workflow instances which are processing by current middleware node right now
+     */
+    List<WorkflowProcessingInstance> getProcessingInstances();
+
+    /**
+     * Force release workflow instance which is stuck in processing, so it can be continued by the next heartbeat.
+     * Processing thread is not interrupted.
+     *
+     * @param instanceId workflow instance ID
+     * @return false if instance is not processing by current node
+     */
+    boolean releaseProcessingInstance(UUID instanceId);
+
+    /**
+     * Change count of the heartbeat worker threads at runtime
+     *
+     * @param threads new count of threads
+     */
+    void setHeartbeatThreadCount(int threads);
+
+    /**
+     * @return IDs of paused workflows
+     */
+    Set<UUID> getPausedWorkflows();
+
+    /**
+     * Pause or resume processing of all instances of the workflow
+     *
+     * @param workflowId workflow ID
+     * @param paused     pause or resume processing
+     */
+    void setPaused(UUID workflowId, boolean paused);
+}
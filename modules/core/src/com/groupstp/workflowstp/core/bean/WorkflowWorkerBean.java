@@ -1,24 +1,33 @@
 package com.groupstp.workflowstp.core.bean;
 
-import com.groupstp.workflowstp.bean.WorkflowSugarProcessor;
 import com.groupstp.workflowstp.core.config.WorkflowConfig;
 import com.groupstp.workflowstp.core.constant.WorkflowConstants;
-import com.groupstp.workflowstp.core.util.JsonUtil;
+import com.groupstp.workflowstp.core.codec.ContextCodecManager;
+import com.groupstp.workflowstp.core.util.PartitionedExecutor;
 import com.groupstp.workflowstp.data.impl.BaseWorkflowExecutionData;
 import com.groupstp.workflowstp.entity.*;
 import com.groupstp.workflowstp.event.WorkflowEvent;
 import com.groupstp.workflowstp.exception.WorkflowException;
+import com.groupstp.workflowstp.dto.WorkflowBatchResult;
 import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import com.groupstp.workflowstp.dto.WorkflowProcessingInstance;
+import com.groupstp.workflowstp.dto.WorkflowStageAccess;
+import com.groupstp.workflowstp.dto.WorkflowStartResult;
 import com.groupstp.workflowstp.service.WorkflowExecutionDelegate;
+import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
-import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.entity.Updatable;
+import com.haulmont.cuba.core.entity.annotation.Listeners;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.security.app.Authenticated;
+import com.haulmont.cuba.security.app.Authentication;
 import com.haulmont.cuba.security.entity.User;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
@@ -28,9 +37,20 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Base implementation of workflow functional bean
@@ -41,6 +61,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorker {
     private static final Logger log = LoggerFactory.getLogger(WorkflowWorkerBean.class);
 
+    protected static final long WAKEUP_DISPATCH_TIMEOUT_MS = 1000;
+
     @Inject
     protected DataManager dataManager;
     @Inject
@@ -48,9 +70,7 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     @Inject
     protected TimeSource timeSource;
     @Inject
-    protected Scripting scripting;
-    @Inject
-    protected JsonUtil jsonUtil;
+    protected ContextCodecManager contextCodec;
     @Inject
     protected Persistence persistence;
     @Inject
@@ -58,7 +78,33 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     @Inject
     protected UserSessionSource userSessionSource;
     @Inject
-    protected WorkflowSugarProcessor sugar;
+    protected WorkflowExecutor executor;
+    @Inject
+    protected Authentication authentication;
+    @Inject
+    protected WorkflowLeaseManager leaseManager;
+    @Inject
+    protected WorkflowTimer timer;
+    @Inject
+    protected WorkflowScriptCache scriptCache;
+    @Inject
+    protected WorkflowGraphCache graphCache;
+    @Inject
+    protected WorkflowDirectionEvaluator directionEvaluator;
+    @Inject
+    protected WorkflowErrorStore errorStore;
+    @Inject
+    protected WorkflowUserResolver userResolver;
+    @Inject
+    protected WorkflowStageIndex stageIndex;
+    @Inject
+    protected WorkflowEntityPrefetcher entityPrefetcher;
+    @Inject
+    protected WorkflowMetricsRegistry metrics;
+    @Inject
+    protected WorkflowStageExecutor stageExecutor;
+    @Inject
+    protected WorkflowStageLimiter stageLimiter;
 
     @Inject
     protected WorkflowConfig config;
@@ -67,10 +113,38 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
      * Current processing workflow instances by processing thread
      */
     protected final Map<UUID, Thread> processingInstances = new HashMap<>();
+    protected final Map<UUID, Long> processingSince = new HashMap<>();
     protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Timed out but still running stages logic by workflow instance, such instances are kept busy until logic is finished
+     */
+    protected final Map<UUID, StageRun> orphanedStages = new HashMap<>();
 
     protected volatile int callCount = 0;
 
+    /**
+     * Heartbeat keyset pagination position where the previous tick stopped because of tick budget
+     */
+    protected volatile Date heartbeatLastCreateTs;
+    protected volatile UUID heartbeatLastId;
+
+    /**
+     * Heartbeat worker pool partitioned by workflow instance ID and instances which are waiting in it
+     */
+    protected volatile PartitionedExecutor heartbeatExecutor;
+    protected final Set<UUID> heartbeatQueued = ConcurrentHashMap.newKeySet();
+    protected final AtomicBoolean heartbeatRunning = new AtomicBoolean();
+
+    /**
+     * Parsed paused workflows configuration
+     */
+    protected volatile PausedWorkflows pausedWorkflows = new PausedWorkflows("", Collections.emptySet());
+
+    /**
+     * Execution contexts of workflow instances which are iterating by current thread
+     */
+    protected final ThreadLocal<ContextSession> contextSession = new ThreadLocal<>();
+
 
     @Override
     public Workflow determinateWorkflow(WorkflowEntity entity) throws WorkflowException {
@@ -136,6 +210,7 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             instance.setEntityName(metaClass.getName());
             instance.setEntityId(entityId.toString());
             instance.setStartDate(timeSource.currentTimestamp());
+            instance.setNextWakeupAt(instance.getStartDate());
 
             if (entity.getWorkflow() != null) {
                 throw new WorkflowException(String.format(getMessage("WorkflowWorkerBean.workflowEntityAlreadyProcessing"), entity.getId()));
@@ -161,6 +236,313 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         return instance.getId();
     }
 
+    @Override
+    public WorkflowStartResult startWorkflows(Collection<? extends WorkflowEntity> entities, @Nullable Consumer<WorkflowStartResult> listener) {
+        Preconditions.checkNotNullArgument(entities, getMessage("WorkflowWorkerBean.emptyEntity"));
+
+        WorkflowStartResult result = new WorkflowStartResult();
+        int chunkSize = Math.max(1, config.getStartBatchSize() == null ? 500 : config.getStartBatchSize());
+
+        Map<String, Map<Object, WorkflowEntity>> groups = new LinkedHashMap<>();
+        for (WorkflowEntity entity : entities) {
+            if (entity == null) {
+                continue;
+            }
+            if (entity.getId() == null) {
+                throw new IllegalArgumentException(String.format(getMessage("WorkflowWorkerBean.incompatibleEntity"), entity.getMetaClass().getName()));
+            }
+            groups.computeIfAbsent(entity.getMetaClass().getName(), k -> new LinkedHashMap<>()).put(entity.getId(), entity);
+        }
+
+        for (Map.Entry<String, Map<Object, WorkflowEntity>> group : groups.entrySet()) {
+            MetaClass metaClass = metadata.getClassNN(group.getKey());
+            List<WorkflowDefinition> definitions = loadActiveDefinitions(metaClass.getName());
+
+            List<WorkflowEntity> items = new ArrayList<>(group.getValue().values());
+            for (int i = 0; i < items.size(); i += chunkSize) {
+                Map<Object, WorkflowEntity> chunk = new LinkedHashMap<>();
+                for (WorkflowEntity entity : items.subList(i, Math.min(i + chunkSize, items.size()))) {
+                    chunk.put(entity.getId(), entity);
+                }
+
+                WorkflowStartResult chunkResult = new WorkflowStartResult();
+                startWorkflowsChunk(metaClass, chunk, definitions, chunkResult);
+
+                result.merge(chunkResult);
+                if (listener != null) {
+                    listener.accept(chunkResult);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Determinate workflows and start them for one chunk of the same type entities.
+     * Workflow instances are created by batch only if it's enabled and there are no entity listeners which would be bypassed,
+     * otherwise or if batch creation failed workflows will be started one by one.
+     */
+    protected void startWorkflowsChunk(MetaClass metaClass, Map<Object, WorkflowEntity> entities,
+                                       List<WorkflowDefinition> definitions, WorkflowStartResult result) {
+        Map<Object, Workflow> determined = determinateWorkflows(metaClass, entities, definitions, result);
+        if (determined.isEmpty()) {
+            return;
+        }
+
+        for (Object id : loadWorkflowEntitiesIds(metaClass, determined.keySet(), "e.workflow is not null")) {
+            result.addError(id, String.format(getMessage("WorkflowWorkerBean.workflowEntityAlreadyProcessing"), id));
+            determined.remove(id);
+        }
+        for (Iterator<Map.Entry<Object, Workflow>> iterator = determined.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Object, Workflow> entry = iterator.next();
+            if (!graphCache.get(entry.getValue().getId()).isActive()) {
+                result.addError(entry.getKey(), getMessage("WorkflowWorkerBean.workflowNotInActiveState"));
+                iterator.remove();
+            }
+        }
+        if (determined.isEmpty()) {
+            return;
+        }
+
+        if (!isBatchCreationAllowed(metaClass)) {
+            startWorkflowsOneByOne(entities, determined, result);
+            return;
+        }
+
+        Map<Object, WorkflowInstance> created;
+        try (Transaction tr = persistence.createTransaction()) {
+            created = createWorkflowInstances(metaClass, determined);
+            tr.commit();
+        } catch (Exception e) {
+            log.warn("Failed to start workflows of {} by batch, workflows will be started one by one: {}", metaClass.getName(), e.getMessage());
+
+            startWorkflowsOneByOne(entities, determined, result);
+            return;
+        }
+
+        for (Map.Entry<Object, WorkflowInstance> entry : created.entrySet()) {
+            WorkflowInstance instance = entry.getValue();
+            result.addStarted(entry.getKey(), instance.getId());
+
+            log.info("Workflow {}({}) started for entity {}({}). Workflow instance created {}({})",
+                    instance.getWorkflow(), instance.getWorkflow().getId(), metaClass.getName(), entry.getKey(), instance, instance.getId());
+        }
+
+        continueWorkflows(created, result::addError);
+    }
+
+    /**
+     * Start determined workflows for each entity separately by the same way as {@link #startWorkflow(WorkflowEntity, Workflow)}
+     */
+    protected void startWorkflowsOneByOne(Map<Object, WorkflowEntity> entities, Map<Object, Workflow> workflows, WorkflowStartResult result) {
+        for (Map.Entry<Object, Workflow> entry : workflows.entrySet()) {
+            try {
+                result.addStarted(entry.getKey(), startWorkflow(entities.get(entry.getKey()), entry.getValue()));
+            } catch (Exception e) {
+                result.addError(entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Batch creation of workflow instances changes database directly, so it's used only if it's enabled by configuration
+     * and neither workflow entity nor workflow instance and task classes have registered entity listeners.
+     */
+    protected boolean isBatchCreationAllowed(MetaClass metaClass) {
+        return Boolean.TRUE.equals(config.getStartBatchInsertEnable())
+                && !hasEntityListeners(metaClass.getJavaClass())
+                && !hasEntityListeners(WorkflowInstance.class)
+                && !hasEntityListeners(WorkflowInstanceTask.class);
+    }
+
+    protected boolean hasEntityListeners(Class<?> entityClass) {
+        for (Class<?> cls = entityClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            Listeners listeners = cls.getAnnotation(Listeners.class);
+            if (listeners != null && listeners.value().length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check workflow definitions in priority order for the set of entities. Sql conditions are checked by one query
+     * for all remaining entities, groovy conditions are evaluated for each entity.
+     *
+     * @return suitable workflows by entities IDs
+     */
+    protected Map<Object, Workflow> determinateWorkflows(MetaClass metaClass, Map<Object, WorkflowEntity> entities,
+                                                         List<WorkflowDefinition> definitions, WorkflowStartResult result) {
+        Map<Object, Workflow> determined = new LinkedHashMap<>();
+        Set<Object> remaining = new LinkedHashSet<>(entities.keySet());
+        Map<Object, WorkflowEntity> loaded = null;
+
+        for (WorkflowDefinition definition : definitions) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            Collection<Object> satisfied;
+            if (!StringUtils.isEmpty(definition.getConditionGroovyScript())) {
+                if (loaded == null) {
+                    loaded = loadWorkflowEntities(metaClass, entities.keySet());
+                }
+                satisfied = new ArrayList<>();
+                Set<Object> failed = new HashSet<>();
+                for (Object id : remaining) {
+                    WorkflowEntity entity = loaded.get(id);
+                    if (entity == null) {
+                        continue;
+                    }
+                    try {
+                        if (checkDefinitionByGroovy(definition, entity)) {
+                            satisfied.add(id);
+                        }
+                    } catch (Exception e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof WorkflowException) {
+                            result.addError(id, cause.getMessage());
+                            failed.add(id);
+                        } else {
+                            log.error(String.format("Failed to check workflow definition '%s'", definition.getId()), e);
+                        }
+                    }
+                }
+                remaining.removeAll(failed);
+            } else if (!StringUtils.isEmpty(definition.getConditionSqlScript())) {
+                try {
+                    satisfied = checkDefinitionBySql(definition, metaClass, remaining);
+                } catch (Exception e) {
+                    log.error(String.format("Failed to check workflow definition '%s'", definition.getId()), e);
+                    continue;
+                }
+            } else {
+                satisfied = new ArrayList<>(remaining);
+            }
+
+            for (Object id : satisfied) {
+                if (remaining.remove(id)) {
+                    determined.put(id, definition.getWorkflow());
+                }
+            }
+        }
+
+        for (Object id : remaining) {
+            result.addError(id, getMessage("WorkflowWorkerBean.noActiveWorkflowDefinitions"));
+        }
+        return determined;
+    }
+
+    /**
+     * Mark entities as processing and insert workflow instances with their first tasks by JDBC batches in current transaction.
+     * Entity listeners are not invoked here.
+     *
+     * @return created workflow instances by entities IDs
+     */
+    protected Map<Object, WorkflowInstance> createWorkflowInstances(MetaClass metaClass, Map<Object, Workflow> workflows) throws SQLException {
+        EntityManager em = persistence.getEntityManager();
+        Timestamp now = new Timestamp(timeSource.currentTimestamp().getTime());
+        String user = userSessionSource.getUserSession().getUser().getLogin();
+
+        Map<UUID, List<Object>> idsByWorkflow = new LinkedHashMap<>();
+        Map<UUID, Workflow> workflowById = new HashMap<>();
+        for (Map.Entry<Object, Workflow> entry : workflows.entrySet()) {
+            idsByWorkflow.computeIfAbsent(entry.getValue().getId(), k -> new ArrayList<>()).add(entry.getKey());
+            workflowById.put(entry.getValue().getId(), entry.getValue());
+        }
+        boolean updatable = Updatable.class.isAssignableFrom(metaClass.getJavaClass());
+        for (Map.Entry<UUID, List<Object>> entry : idsByWorkflow.entrySet()) {
+            Query query = em.createQuery("update " + metaClass.getName() + " e set " +
+                    "e.status = :status, e.workflow = :workflow, e.stepName = null" +
+                    (metaClass.getProperty("version") == null ? "" : ", e.version = e.version + 1") +
+                    (updatable ? ", e.updateTs = :updateTs, e.updatedBy = :updatedBy" : "") +
+                    " where e.id in :ids and e.workflow is null")
+                    .setParameter("status", WorkflowEntityStatus.IN_PROGRESS.getId())
+                    .setParameter("workflow", workflowById.get(entry.getKey()), false)
+                    .setParameter("ids", entry.getValue());
+            if (updatable) {
+                query.setParameter("updateTs", now)
+                        .setParameter("updatedBy", user);
+            }
+            int updated = query.executeUpdate();
+            if (updated != entry.getValue().size()) {
+                throw new IllegalStateException(String.format("Only %s of %s entities %s marked as processing",
+                        updated, entry.getValue().size(), metaClass.getName()));
+            }
+        }
+
+        Map<Object, WorkflowInstance> result = new LinkedHashMap<>();
+        List<Object[]> instances = new ArrayList<>(workflows.size());
+        List<Object[]> tasks = new ArrayList<>(workflows.size());
+        for (Map.Entry<Object, Workflow> entry : workflows.entrySet()) {
+            WorkflowInstance instance = metadata.create(WorkflowInstance.class);
+            instance.setWorkflow(entry.getValue());
+            instance.setEntityName(metaClass.getName());
+            instance.setEntityId(entry.getKey().toString());
+            instance.setStartDate(now);
+            instance.setNextWakeupAt(now);
+            result.put(entry.getKey(), instance);
+
+            Step step = graphCache.get(entry.getValue().getId()).getStartStep();
+            UUID taskId = step == null ? null : UuidProvider.createUuid();
+            if (step != null) {
+                tasks.add(new Object[]{taskId, now, user, now, instance.getId(), step.getId(), now});
+            }
+
+            instances.add(new Object[]{instance.getId(), now, user, now,
+                    entry.getValue().getId(), instance.getEntityName(), instance.getEntityId(), now, now,
+                    taskId, step == null ? null : step.getId()});
+        }
+
+        QueryRunner runner = new QueryRunner();
+        runner.batch(em.getConnection(),
+                "insert into WFSTP_WORKFLOW_INSTANCE (ID, VERSION, CREATE_TS, CREATED_BY, UPDATE_TS, WORKFLOW_ID, " +
+                        "ENTITY_NAME, ENTITY_ID, START_DATE, NEXT_WAKEUP_AT, CURRENT_TASK_ID, CURRENT_STEP_ID) " +
+                        "values (?, 1, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                instances.toArray(new Object[0][]));
+        if (!tasks.isEmpty()) {
+            runner.batch(em.getConnection(),
+                    "insert into WFSTP_WORKFLOW_INSTANCE_TASK (ID, VERSION, CREATE_TS, CREATED_BY, UPDATE_TS, " +
+                            "INSTANCE_ID, STEP_ID, START_DATE) values (?, 1, ?, ?, ?, ?, ?, ?)",
+                    tasks.toArray(new Object[0][]));
+        }
+        return result;
+    }
+
+    /**
+     * Load workflow entities by one query
+     */
+    protected Map<Object, WorkflowEntity> loadWorkflowEntities(MetaClass metaClass, Collection<Object> ids) {
+        //noinspection unchecked
+        List<WorkflowEntity> list = dataManager.loadList(LoadContext.create(metaClass.getJavaClass())
+                .setQuery(new LoadContext.Query("select e from " + metaClass.getName() + " e where e.id in :ids")
+                        .setParameter("ids", ids))
+                .setView(View.LOCAL));
+        Map<Object, WorkflowEntity> result = new HashMap<>();
+        for (WorkflowEntity entity : list) {
+            result.put(entity.getId(), entity);
+        }
+        return result;
+    }
+
+    /**
+     * Load IDs of workflow entities which are satisfy to provided condition
+     */
+    protected Set<Object> loadWorkflowEntitiesIds(MetaClass metaClass, Collection<Object> ids, String condition) {
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer("select e from " + metaClass.getName() + " e");
+        transformer.addWhere(condition);
+
+        //noinspection unchecked
+        List<Entity> list = dataManager.loadList(LoadContext.create(metaClass.getJavaClass())
+                .setQuery(new LoadContext.Query(transformer.getResult() + " and e.id in :ids")
+                        .setParameter("ids", ids))
+                .setView(View.MINIMAL));
+        Set<Object> result = new HashSet<>();
+        for (Entity entity : list) {
+            result.add(entity.getId());
+        }
+        return result;
+    }
+
     @Override
     public void restartWorkflow(WorkflowInstance instance) throws WorkflowException {
         Preconditions.checkNotNullArgument(instance, getMessage("WorkflowWorkerBean.emptyWorkflowInstance"));
@@ -181,7 +563,11 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             CommitContext toCommit = new CommitContext();
 
             instance.setError(null);
+            instance.setErrorRef(null);
             instance.setEndDate(null);
+            instance.setNextWakeupAt(timeSource.currentTimestamp());
+            instance.setAttempts(null);
+            instance.setStalled(null);
             toCommit.addInstanceToCommit(instance);
 
             WorkflowEntity entity = getWorkflowEntity(instance);
@@ -259,7 +645,13 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             instance.setStartDate(timeSource.currentTimestamp());
             instance.setEndDate(null);
             instance.setError(null);
+            instance.setErrorRef(null);
             instance.setErrorInTask(null);
+            instance.setNextWakeupAt(instance.getStartDate());
+            instance.setAttempts(null);
+            instance.setStalled(null);
+            instance.setCurrentTask(null);
+            instance.setCurrentStep(null);
 
             entity = em.reloadNN(entity, View.LOCAL);
             entity.setStatus(WorkflowEntityStatus.IN_PROGRESS);
@@ -292,6 +684,7 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             ctx.putParam(WorkflowConstants.REPEAT, null);
             ctx.putParam(WorkflowConstants.TIMEOUT, null);
             setExecutionContext(ctx, instance);
+            setNextWakeup(instance, timeSource.currentTimestamp());
         } finally {
             detach(instance);
         }
@@ -309,6 +702,8 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             try (Transaction tr = persistence.getTransaction()) {
                 EntityManager em = persistence.getEntityManager();
 
+                checkLease(instance);
+
                 instance = em.reloadNN(instance);
                 if (instance.getEndDate() != null && StringUtils.isEmpty(instance.getError())) {
                     log.warn("Trying to move finished workflow instance {}({})", instance, instance.getId());
@@ -316,7 +711,11 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                 }
                 instance.setEndDate(null);
                 instance.setError(null);
+                instance.setErrorRef(null);
                 instance.setErrorInTask(null);
+                instance.setNextWakeupAt(timeSource.currentTimestamp());
+                instance.setAttempts(null);
+                instance.setStalled(null);
                 instance = em.merge(instance);
 
                 Workflow wf = em.reloadNN(instance.getWorkflow());
@@ -343,22 +742,27 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                         instance, instance.getId(), e.getMessage()));
             }
 
-            CommitContext commitContext = new CommitContext();
+            try (Transaction tr = persistence.getTransaction()) {
+                EntityManager em = persistence.getEntityManager();
 
-            WorkflowInstanceTask lastTask = getLastTask(instance);
-            if (lastTask != null) {
-                //anyway need to complete the current last task to move to another
-                lastTask.setEndDate(timeSource.currentTimestamp());
-                commitContext.addInstanceToCommit(lastTask);
-            }
-            WorkflowInstanceTask task = metadata.create(WorkflowInstanceTask.class);
-            task.setStartDate(timeSource.currentTimestamp());
-            task.setInstance(instance);
-            task.setStep(step);
+                WorkflowInstanceTask lastTask = getLastTask(instance);
+                if (lastTask != null) {
+                    //anyway need to complete the current last task to move to another
+                    lastTask = em.find(WorkflowInstanceTask.class, lastTask.getId(), View.LOCAL);
+                    if (lastTask != null) {
+                        lastTask.setEndDate(timeSource.currentTimestamp());
+                    }
+                }
+                WorkflowInstanceTask task = metadata.create(WorkflowInstanceTask.class);
+                task.setStartDate(timeSource.currentTimestamp());
+                task.setInstance(instance);
+                task.setStep(step);
 
-            commitContext.addInstanceToCommit(task);
+                em.persist(task);
+                setCurrentTask(instance.getId(), task);
 
-            dataManager.commit(commitContext);
+                tr.commit();
+            }
         } finally {
             detach(instance);
         }
@@ -366,6 +770,33 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         start(instance);
     }
 
+    @Override
+    public void wakeupWorkflow(WorkflowInstance instance) throws WorkflowException {
+        Preconditions.checkNotNullArgument(instance, getMessage("WorkflowWorkerBean.emptyWorkflowInstance"));
+
+        Date wakeup = timeSource.currentTimestamp();
+        try (Transaction tr = persistence.getTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            instance = em.reloadNN(instance, View.LOCAL);
+
+            if (!Boolean.TRUE.equals(instance.getStalled())) {
+                log.warn("Trying to wake up not stalled workflow instance {}({})", instance, instance.getId());
+                return;
+            }
+            instance.setStalled(null);
+            instance.setAttempts(null);
+            instance.setNextWakeupAt(wakeup);
+
+            tr.commit();
+        } catch (Exception e) {
+            log.error(String.format("Failed to wake up workflow instance %s(%s)", instance, instance.getId()), e);
+            throw new WorkflowException(String.format(getMessage("WorkflowWorkerBean.failedToWakeup"), instance, instance.getId()), e);
+        }
+        //execute without waiting of the repeat interval
+        setParameter(instance, WorkflowConstants.REPEAT, null);
+        timer.schedule(instance.getId(), wakeup);
+    }
+
     @Override
     public boolean isProcessing(WorkflowEntity entity) {
         return getWorkflowInstance(entity) != null;
@@ -448,13 +879,12 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         }
         if (workflow != null) {
             return dataManager.load(WorkflowInstanceTask.class)
-                    .query("select e from wfstp$WorkflowInstanceTask e " +
-                            "join e.instance i where " +
+                    .query("select i.currentTask from wfstp$WorkflowInstance i where " +
                             "i.entityName = :entityName and " +
                             "i.entityId = :entityId and " +
                             "i.workflow.id = :workflowId " +
-                            (active ? "and e.endDate is null " : "") +
-                            "order by e.createTs desc")
+                            (active ? "and i.currentTask.endDate is null " : "") +
+                            "order by i.createTs desc")
                     .parameter("entityName", entity.getMetaClass().getName())
                     .parameter("entityId", entity.getId().toString())
                     .parameter("workflowId", workflow.getId())
@@ -482,16 +912,13 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         }
 
         WorkflowInstanceTask task = dataManager.load(WorkflowInstanceTask.class)
-                .query("select e from wfstp$WorkflowInstanceTask e " +
-                        "join e.instance i " +
-                        "join e.step s where " +
+                .query("select i.currentTask from wfstp$WorkflowInstance i where " +
                         "i.entityName = :entityName and " +
                         "i.entityId = :entityId and " +
                         "i.workflow.id = :workflowId and " +
-                        "s.stage.id = :stageId and " +
-                        "s.workflow.id = :workflowId and " +
-                        "e.endDate is null " +
-                        " order by e.createTs desc")
+                        "i.currentStep.stage.id = :stageId and " +
+                        "i.currentTask.endDate is null " +
+                        "order by i.createTs desc")
                 .parameter("entityName", entity.getMetaClass().getName())
                 .parameter("entityId", entity.getId().toString())
                 .parameter("workflowId", workflow.getId())
@@ -513,37 +940,127 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     @Override
     public Stage getStage(WorkflowEntity entity) {
         if (!StringUtils.isEmpty(entity.getStepName())) {
-            return dataManager.load(Stage.class)
-                    .query("select e from wfstp$Stage e where " +
-                            "e.entityName = :entityName and " +
-                            "e.name = :name")
-                    .parameter("entityName", entity.getMetaClass().getName())
-                    .parameter("name", entity.getStepName())
-                    .maxResults(1)
-                    .view("stage-process")
-                    .optional()
-                    .orElse(null);
+            return stageIndex.getStage(entity.getMetaClass().getName(), entity.getStepName());
         }
         return null;
     }
 
+    @Override
+    public WorkflowStageAccess getStageAccess(Stage stage) {
+        Preconditions.checkNotNullArgument(stage);
+
+        if (!PersistenceHelper.isLoaded(stage, "entityName") || !PersistenceHelper.isLoaded(stage, "name")) {
+            stage = reloadNN(stage, View.LOCAL);
+        }
+        WorkflowStageAccess access = stageIndex.getAccess(stage.getEntityName(), stage.getName());
+        if (access == null || !access.getStageId().equals(stage.getId())) {
+            //stage is not indexed by its name yet or it's shadowed by the same named stage
+            access = new WorkflowStageAccess(reloadNN(stage, "stage-process"));
+        }
+        return access;
+    }
+
+    @Override
+    public List<WorkflowInstanceTask> getWorkflowInstanceTasks(Collection<? extends WorkflowEntity> entities, Stage stage) {
+        Preconditions.checkNotNullArgument(entities);
+        Preconditions.checkNotNullArgument(stage);
+
+        if (entities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = entities.stream()
+                .map(entity -> entity.getId().toString())
+                .distinct()
+                .collect(Collectors.toList());
+
+        List<WorkflowInstanceTask> tasks = dataManager.load(WorkflowInstanceTask.class)
+                .query("select i.currentTask from wfstp$WorkflowInstance i where " +
+                        "i.entityName = :entityName and " +
+                        "i.entityId in :entityIds and " +
+                        "i.currentStep.stage.id = :stageId and " +
+                        "i.endDate is null and " +
+                        "i.currentTask.endDate is null " +
+                        "order by i.createTs desc")
+                .parameter("entityName", entities.iterator().next().getMetaClass().getName())
+                .parameter("entityIds", ids)
+                .parameter("stageId", stage.getId())
+                .view("workflowInstanceTask-detailed")
+                .list();
+
+        //only the latest task per entity
+        Map<String, WorkflowInstanceTask> result = new LinkedHashMap<>();
+        for (WorkflowInstanceTask task : tasks) {
+            result.putIfAbsent(task.getInstance().getEntityId(), task);
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    @Override
+    public boolean await(WorkflowInstance instance, long timeoutMs) {
+        Preconditions.checkNotNullArgument(instance, getMessage("WorkflowWorkerBean.emptyWorkflowInstance"));
+        return executor.await(instance.getId(), timeoutMs);
+    }
+
     /**
-     * Start execution of provided workflow instance
+     * Start execution of provided workflow instance.
+     * If asynchronous mode enabled, execution will be enqueued into the engine executor and calling thread released.
      *
      * @param instance workflow instance
      * @throws WorkflowException in case of any unexpected problems
      */
     protected void start(WorkflowInstance instance) throws WorkflowException {
-        iterate(instance);//TODO maybe it is better call in scheduler to release calling thread?
+        if (Boolean.TRUE.equals(config.getAsyncEnable())) {
+            try {
+                executor.submit(instance.getId(), () -> {
+                    try {
+                        iterate(instance);
+                    } catch (WorkflowException e) {
+                        log.warn("Failed to continue workflow instance {}({}) asynchronously: {}", instance, instance.getId(), e.getMessage());
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                log.warn("Workflow engine queue is full. Workflow instance {}({}) will be continued in the calling thread",
+                        instance, instance.getId());
+            }
+        }
+        iterate(instance);
     }
 
     /**
-     * Check and run workflow by it's steps. Move instance into next steps by it's scheme
+     * Check and run workflow by it's steps. Move instance into next steps by it's scheme.
+     * Execution context is loaded once per iteration and stored together with the instance state changes.
      *
      * @param instance workflow instance
      * @throws WorkflowException in case of any unexpected problems
      */
     protected void iterate(WorkflowInstance instance) throws WorkflowException {
+        ContextSession session = contextSession.get();
+        if (session != null) {
+            iterateInternal(instance);
+        } else {
+            session = new ContextSession();
+            contextSession.set(session);
+            long start = System.currentTimeMillis();
+            boolean completed = false;
+            try {
+                iterateInternal(instance);
+                completed = true;
+            } finally {
+                metrics.record(WorkflowMetricsRegistry.ITERATE, getMetricTag(instance), System.currentTimeMillis() - start);
+                try {
+                    //failure of the iteration itself is more important than not stored contexts
+                    storeExecutionContexts(session, completed);
+                } finally {
+                    contextSession.remove();
+                    //iteration could be interrupted without detaching, e.g. by lost lease
+                    detach(instance);
+                }
+            }
+        }
+    }
+
+    protected void iterateInternal(WorkflowInstance instance) throws WorkflowException {
         Preconditions.checkNotNullArgument(instance, getMessage("WorkflowWorkerBean.emptyWorkflowInstance"));
 
         if (!attach(instance)) {
@@ -555,6 +1072,9 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
 
         try {
             instance = reloadNN(instance, "workflowInstance-process");
+            //context already loaded with the instance
+            final String contextText = instance.getContext();
+            contextSession.get().prime(instance.getId(), () -> parseExecutionContext(contextText));
 
             log.debug("Iterating workflow instance {}({})", instance, instance.getId());
 
@@ -569,15 +1089,31 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                 detach(instance);
                 return;
             }
+            if (Boolean.TRUE.equals(instance.getStalled())) {
+                log.debug("Workflow instance {}({}) is stalled", instance, instance.getId());
+                detach(instance);
+                return;
+            }
+            if (isPaused(instance)) {
+                //instance stays due and will be continued by heartbeat after resume
+                log.debug("Workflow of instance {}({}) is paused", instance, instance.getId());
+                detach(instance);
+                return;
+            }
 
-            entity = getWorkflowEntity(instance);
+            //entity could be loaded together with other processing instances
+            entity = entityPrefetcher.take(instance.getId());
+            if (entity == null) {
+                entity = getWorkflowEntity(instance);
+            }
             if (entity == null) {
                 log.error("Entity for workflow instance {}({}) not found", instance, instance.getId());
                 markAsFailed(instance, null, null, getMessage("WorkflowWorkerBean.entityNotFound"));
                 throw new WorkflowException(getMessage("WorkflowWorkerBean.entityNotFound"));
             }
 
-            if (!Boolean.TRUE.equals(instance.getWorkflow().getActive())) {
+            WorkflowGraph graph = graphCache.get(instance.getWorkflow().getId());
+            if (!graph.isActive()) {
                 log.error("Workflow instance {}({}) with inactive workflow", instance, instance.getId());
                 markAsFailed(instance, entity, null, getMessage("WorkflowWorkerBean.workflowNotInActiveState"));
                 throw new WorkflowException(getMessage("WorkflowWorkerBean.workflowNotInActiveState"));
@@ -585,17 +1121,31 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
 
             WorkflowInstanceTask lastTask = getLastTask(instance);
             if (lastTask != null) {
+                Step step = getStep(graph, lastTask.getStep().getId());
+                lastTask.setStep(step);
+
                 if (lastTask.getEndDate() != null) {//current task is done
-                    Step step = lastTask.getStep();
-                    if (!CollectionUtils.isEmpty(step.getDirections())) {
+                    List<StepDirection> directions = graph.getDirections(step.getId());
+                    if (!CollectionUtils.isEmpty(directions)) {
                         WorkflowExecutionContext context = null;
-                        for (StepDirection direction : step.getDirections()) {
+                        List<StepDirection> sqlDirections = getSqlDirections(directions);
+                        Integer sqlIndex = null;
+                        for (StepDirection direction : directions) {
                             boolean satisfy;
                             try {
-                                if (context == null) {
-                                    context = getExecutionContext(instance);
+                                int index = sqlDirections.indexOf(direction);
+                                if (index >= 0) {
+                                    //all sql directions are checked together once
+                                    if (sqlIndex == null) {
+                                        sqlIndex = findFirstSqlDirection(sqlDirections, step, instance, entity);
+                                    }
+                                    satisfy = sqlIndex == index;
+                                } else {
+                                    if (context == null) {
+                                        context = getExecutionContext(instance);
+                                    }
+                                    satisfy = isSatisfyDirection(direction, instance, entity, context);
                                 }
-                                satisfy = isSatisfyDirection(direction, instance, entity, context);
                             } catch (Exception e) {
                                 markAsFailed(instance, entity, null, e);
                                 if (e instanceof WorkflowException) {
@@ -605,7 +1155,7 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                                         String.format(getMessage("WorkflowWorkerBean.failedToEvaluateDirections"), e.getMessage()));
                             }
                             if (satisfy) {
-                                createAndExecuteTask(direction.getTo(), instance, entity);
+                                createAndExecuteTask(getStep(graph, direction.getTo().getId()), instance, entity);
                                 return;
                             }
                         }
@@ -621,7 +1171,7 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                     executeTask(lastTask, instance, entity, entity.getStepName());
                 }
             } else {//no task find, this is first iteration call
-                Step step = getStartStep(instance);
+                Step step = graph.getStartStep();
                 if (step != null) {
                     createAndExecuteTask(step, instance, entity);
                 } else {//no steps found just done this workflow
@@ -664,13 +1214,18 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     protected boolean checkDirectionByGroovy(StepDirection direction, WorkflowInstance instance,
                                              WorkflowEntity entity, WorkflowExecutionContext context) throws WorkflowException {
         try {
-            final String script = prepareScript(direction.getConditionGroovyScript());
             final Map<String, Object> binding = new HashMap<>();
             binding.put("entity", entity);
             binding.put("context", context.getParams());
             binding.put("workflowInstance", instance);
 
-            return Boolean.TRUE.equals(scripting.evaluateGroovy(script, binding));
+            long start = System.currentTimeMillis();
+            try {
+                return Boolean.TRUE.equals(scriptCache.evaluate(direction, WorkflowScriptCache.DIRECTION_CONDITION,
+                        direction.getConditionGroovyScript(), binding));
+            } finally {
+                metrics.record(WorkflowMetricsRegistry.DIRECTION_GROOVY, getMetricTag(instance), System.currentTimeMillis() - start);
+            }
         } catch (Exception e) {
             log.error(String.format("Failed to evaluate groovy condition direction from %s to %s of workflow instance %s (%s)",
                     direction.getFrom(), direction.getTo(), instance, instance.getId()), e);
@@ -681,27 +1236,23 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     }
 
     protected boolean checkDefinitionByGroovy(WorkflowDefinition definition, WorkflowEntity entity) {
-        final String script = prepareScript(definition.getConditionGroovyScript());
         final Map<String, Object> binding = new HashMap<>();
         binding.put("entity", entity);
 
-        return Boolean.TRUE.equals(scripting.evaluateGroovy(script, binding));
+        return Boolean.TRUE.equals(scriptCache.evaluate(definition, WorkflowScriptCache.DEFINITION_CONDITION,
+                definition.getConditionGroovyScript(), binding));
     }
 
     protected boolean checkDirectionBySql(StepDirection direction, WorkflowInstance instance, WorkflowEntity entity) throws WorkflowException {
         try {
             MetaClass metaClass = metadata.getClassNN(instance.getEntityName());
 
-            QueryTransformer transformer = QueryTransformerFactory.createTransformer("select e from " + metaClass.getName() + " e");
-            transformer.addWhere(direction.getConditionSqlScript());
-
-            //noinspection unchecked
-            List list = dataManager.loadList(LoadContext.create(metaClass.getJavaClass())
-                    .setQuery(new LoadContext.Query(transformer.getResult() + " and e.id = :id")
-                            .setParameter("id", entity.getId())
-                            .setMaxResults(1))
-                    .setView(View.MINIMAL));
-            return !CollectionUtils.isEmpty(list);
+            long start = System.currentTimeMillis();
+            try {
+                return directionEvaluator.evaluate(direction, metaClass, Collections.singleton(entity.getId())).contains(entity.getId());
+            } finally {
+                metrics.record(WorkflowMetricsRegistry.DIRECTION_SQL, getMetricTag(instance), System.currentTimeMillis() - start);
+            }
         } catch (Exception e) {
             log.error(String.format("Failed to evaluate sql condition direction from %s to %s of workflow instance %s (%s)",
                     direction.getFrom(), direction.getTo(), instance, instance.getId()), e);
@@ -711,31 +1262,142 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         }
     }
 
-    protected boolean checkDefinitionBySql(WorkflowDefinition definition, WorkflowEntity entity) {
-        MetaClass metaClass = entity.getMetaClass();
-
-        QueryTransformer transformer = QueryTransformerFactory.createTransformer("select e from " + metaClass.getName() + " e");
-        transformer.addWhere(definition.getConditionSqlScript());
-
-        //noinspection unchecked
-        List list = dataManager.loadList(LoadContext.create(metaClass.getJavaClass())
-                .setQuery(new LoadContext.Query(transformer.getResult() + " and e.id = :id")
-                        .setParameter("id", entity.getId())
-                        .setMaxResults(1))
-                .setView(View.MINIMAL));
-        return !CollectionUtils.isEmpty(list);
+    protected Set<Object> checkDefinitionBySql(WorkflowDefinition definition, MetaClass metaClass, Collection<Object> ids) {
+        return loadWorkflowEntitiesIds(metaClass, ids, definition.getConditionSqlScript());
     }
 
     /**
-     * Create new task for step and execute it
+     * @return directions which are checking by sql condition in original order
      */
-    protected void createAndExecuteTask(Step step, WorkflowInstance instance, WorkflowEntity entity) throws WorkflowException {
-        WorkflowInstanceTask task = metadata.create(WorkflowInstanceTask.class);
-        task.setStartDate(timeSource.currentTimestamp());
-        task.setInstance(instance);
-        task.setStep(step);
-
-        dataManager.commit(task);
+    protected List<StepDirection> getSqlDirections(List<StepDirection> directions) {
+        List<StepDirection> result = new ArrayList<>();
+        for (StepDirection direction : directions) {
+            if (StringUtils.isEmpty(direction.getConditionGroovyScript()) && !StringUtils.isEmpty(direction.getConditionSqlScript())) {
+                result.add(direction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the first satisfied sql direction of workflow instance. Prefetched result is used if it present,
+     * otherwise all directions are checked by one query. If the joined query failed directions are checked one by one.
+     *
+     * @return index of the first satisfied direction or -1
+     */
+    protected int findFirstSqlDirection(List<StepDirection> directions, Step step, WorkflowInstance instance,
+                                        WorkflowEntity entity) throws WorkflowException {
+        Integer index = directionEvaluator.recall(instance.getId(), step.getId());
+        if (index != null) {
+            metrics.increment(WorkflowMetricsRegistry.DIRECTION_MEMO_HITS, getMetricTag(instance));
+            return index;
+        }
+        if (directions.size() > 1) {
+            try {
+                MetaClass metaClass = metadata.getClassNN(instance.getEntityName());
+
+                long start = System.currentTimeMillis();
+                Integer found = directionEvaluator.evaluate(directions, metaClass, Collections.singleton(entity.getId())).get(entity.getId());
+                metrics.record(WorkflowMetricsRegistry.DIRECTION_SQL_FUSED, getMetricTag(instance), System.currentTimeMillis() - start);
+                return found == null ? -1 : found;
+            } catch (Exception e) {
+                log.debug(String.format("Failed to check directions of step %s by one query, they will be checked one by one", step.getId()), e);
+            }
+        }
+        for (int i = 0; i < directions.size(); i++) {
+            if (checkDirectionBySql(directions.get(i), instance, entity)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check sql directions of several workflow instances by set queries and remember results for the following iterations.
+     * Instances are grouped by step from which they are moving, instances with not finished task are skipped.
+     *
+     * @param instanceIds workflow instances IDs
+     */
+    protected void prefetchDirections(Collection<UUID> instanceIds) {
+        if (instanceIds.size() < 2) {
+            return;
+        }
+        List<KeyValueEntity> moving;
+        try {
+            moving = dataManager.loadValues(ValueLoadContext.create()
+                    .setQuery(ValueLoadContext.createQuery("select i.id, i.currentStep.id, i.workflow.id, i.entityName, i.entityId " +
+                            "from wfstp$WorkflowInstance i where i.id in :ids and i.currentTask.endDate is not null")
+                            .setParameter("ids", instanceIds))
+                    .addProperty("instanceId")
+                    .addProperty("stepId")
+                    .addProperty("workflowId")
+                    .addProperty("entityName")
+                    .addProperty("entityId"));
+        } catch (Exception e) {
+            log.debug("Failed to load moving workflow instances", e);
+            return;
+        }
+
+        Map<UUID, List<KeyValueEntity>> groups = new LinkedHashMap<>();
+        for (KeyValueEntity item : moving) {
+            groups.computeIfAbsent(item.getValue("stepId"), k -> new ArrayList<>()).add(item);
+        }
+        for (Map.Entry<UUID, List<KeyValueEntity>> group : groups.entrySet()) {
+            KeyValueEntity sample = group.getValue().get(0);
+            try {
+                List<StepDirection> directions = getSqlDirections(
+                        graphCache.get(sample.getValue("workflowId")).getDirections(group.getKey()));
+                if (directions.isEmpty()) {
+                    continue;
+                }
+                MetaClass metaClass = metadata.getClassNN((String) sample.getValue("entityName"));
+
+                Map<Object, UUID> instances = new HashMap<>();
+                for (KeyValueEntity item : group.getValue()) {
+                    instances.put(parseEntityId(metaClass, item.getValue("entityId")), item.getValue("instanceId"));
+                }
+                Map<Object, Integer> found = directionEvaluator.evaluate(directions, metaClass, instances.keySet());
+                for (Map.Entry<Object, UUID> entry : instances.entrySet()) {
+                    Integer index = found.get(entry.getKey());
+                    directionEvaluator.remember(entry.getValue(), group.getKey(), index == null ? -1 : index);
+                }
+            } catch (Exception e) {
+                log.debug(String.format("Failed to prefetch directions of step %s", group.getKey()), e);
+            }
+        }
+    }
+
+    protected boolean checkDefinitionBySql(WorkflowDefinition definition, WorkflowEntity entity) {
+        MetaClass metaClass = entity.getMetaClass();
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer("select e from " + metaClass.getName() + " e");
+        transformer.addWhere(definition.getConditionSqlScript());
+
+        //noinspection unchecked
+        List list = dataManager.loadList(LoadContext.create(metaClass.getJavaClass())
+                .setQuery(new LoadContext.Query(transformer.getResult() + " and e.id = :id")
+                        .setParameter("id", entity.getId())
+                        .setMaxResults(1))
+                .setView(View.MINIMAL));
+        return !CollectionUtils.isEmpty(list);
+    }
+
+    /**
+     * Create new task for step and execute it
+     */
+    protected void createAndExecuteTask(Step step, WorkflowInstance instance, WorkflowEntity entity) throws WorkflowException {
+        WorkflowInstanceTask task = metadata.create(WorkflowInstanceTask.class);
+        task.setStartDate(timeSource.currentTimestamp());
+        task.setInstance(instance);
+        task.setStep(step);
+
+        try (Transaction tr = persistence.getTransaction()) {
+            checkLease(instance);
+            persistence.getEntityManager().persist(task);
+            setCurrentTask(instance.getId(), task);
+
+            tr.commit();
+        }
 
         executeTask(task, instance, entity, entity.getStepName());
     }
@@ -744,17 +1406,23 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
      * Run workflow task logic, if task step contains algorithm execution, execute it intermediately
      */
     protected void executeTask(WorkflowInstanceTask task, WorkflowInstance instance, WorkflowEntity entity, @Nullable String previousStep) throws WorkflowException {
-        boolean entityChanged = false;
-        if (!WorkflowEntityStatus.IN_PROGRESS.equals(entity.getStatus())) {
-            entity.setStatus(WorkflowEntityStatus.IN_PROGRESS);
-            entityChanged = true;
-        }
-        if (!Objects.equals(task.getStep().getStage().getName(), entity.getStepName())) {
-            entity.setStepName(task.getStep().getStage().getName());
-            entityChanged = true;
-        }
-        if (entityChanged) {
-            entity = dataManager.commit(entity);
+        if (!WorkflowEntityStatus.IN_PROGRESS.equals(entity.getStatus())
+                || !Objects.equals(task.getStep().getStage().getName(), entity.getStepName())) {
+            //entity could be prefetched some time ago, changes are applied to it's actual state
+            entity = reloadNN(entity, View.LOCAL);
+
+            boolean entityChanged = false;
+            if (!WorkflowEntityStatus.IN_PROGRESS.equals(entity.getStatus())) {
+                entity.setStatus(WorkflowEntityStatus.IN_PROGRESS);
+                entityChanged = true;
+            }
+            if (!Objects.equals(task.getStep().getStage().getName(), entity.getStepName())) {
+                entity.setStepName(task.getStep().getStage().getName());
+                entityChanged = true;
+            }
+            if (entityChanged) {
+                entity = dataManager.commit(entity);
+            }
         }
 
         if (isTimeout(task)) {
@@ -763,53 +1431,95 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             Map<String, String> params = new HashMap<>();
             params.put(WorkflowConstants.TIMEOUT, task.getStep().getStage().getName());
             params.put(WorkflowConstants.REPEAT, null);
-            finishTask(task, params, (Set<User>) null);
+            iterate(finishTaskInternal(task, params, null));
 
             return;
         }
 
         Stage stage = task.getStep().getStage();
         if (StageType.ALGORITHM_EXECUTION.equals(stage.getType())) {//can be executed automatically
-            stage = reloadNN(stage, "stage-process");
 
             boolean success = true;
+            boolean deferred = false;
+            boolean attempted = false;
+            int attempts = instance.getAttempts() == null ? 0 : instance.getAttempts();
+            WorkflowExecutionContext context = null;
             if (!StringUtils.isEmpty(stage.getExecutionGroovyScript()) || !StringUtils.isEmpty(stage.getExecutionBeanName())) {
                 try {
-                    WorkflowExecutionContext context = getExecutionContext(instance);
-
-                    if (isExecutable(context, task)) {
-                        if (!StringUtils.isEmpty(stage.getExecutionBeanName())) {
-                            WorkflowExecutionDelegate delegate = AppBeans.get(stage.getExecutionBeanName());
-                            BaseWorkflowExecutionData data = new BaseWorkflowExecutionData(
-                                    reloadNN(instance, View.LOCAL),
-                                    reloadNN(task, View.LOCAL),
-                                    reloadNN(entity, View.LOCAL),
-                                    context);
-
-                            success = delegate.execute(data);
-                        } else {
-                            final Map<String, Object> binding = new HashMap<>();
-                            binding.put("entity", reloadNN(entity, View.LOCAL));
-                            binding.put("context", context.getParams());
-                            binding.put("workflowInstance", reloadNN(instance, View.LOCAL));
-                            binding.put("workflowInstanceTask", reloadNN(task, View.LOCAL));
-
-                            //if script returned true - this mean step successfully finished and we can move to the next stage
-                            Object result = scripting.evaluateGroovy(prepareScript(stage.getExecutionGroovyScript()), binding);
-                            if (result instanceof Boolean) {
-                                success = Boolean.TRUE.equals(result);
+                    context = getExecutionContext(instance);
+
+                    if (!isExecutable(context, task, attempts)) {
+                        success = false;
+                    } else if (!stageLimiter.tryAcquire(stage)) {
+                        //stage limits are exhausted, execution is deferred without counting it as a repeat
+                        log.debug("Execution of stage {} of workflow instance {}({}) deferred by stage limits",
+                                stage.getName(), instance, instance.getId());
+                        success = false;
+                        deferred = true;
+                    } else {
+                        //stage logic works with it's own copy of the context, it's taken back only if logic finished in time
+                        WorkflowExecutionContext stageContext = ContextSession.copy(context);
+                        //taken permit is released by the stage execution when logic is actually finished
+                        boolean executing = false;
+                        try {
+                            if (!StringUtils.isEmpty(stage.getExecutionBeanName())) {
+                                WorkflowExecutionDelegate delegate = AppBeans.get(stage.getExecutionBeanName());
+                                BaseWorkflowExecutionData data = new BaseWorkflowExecutionData(
+                                        reloadNN(instance, View.LOCAL),
+                                        reloadNN(task, View.LOCAL),
+                                        reloadNN(entity, View.LOCAL),
+                                        stageContext);
+
+                                executing = true;
+                                success = executeStage(instance, stage, WorkflowMetricsRegistry.STAGE_DELEGATE, () -> delegate.execute(data));
+                            } else {
+                                final Map<String, Object> binding = new HashMap<>();
+                                binding.put("entity", reloadNN(entity, View.LOCAL));
+                                binding.put("context", stageContext.getParams());
+                                binding.put("workflowInstance", reloadNN(instance, View.LOCAL));
+                                binding.put("workflowInstanceTask", reloadNN(task, View.LOCAL));
+
+                                //if script returned true - this mean step successfully finished and we can move to the next stage
+                                executing = true;
+                                Object result = executeStage(instance, stage, WorkflowMetricsRegistry.STAGE_GROOVY,
+                                        () -> scriptCache.evaluate(stage, WorkflowScriptCache.STAGE_EXECUTION,
+                                                stage.getExecutionGroovyScript(), binding));
+                                if (result instanceof Boolean) {
+                                    success = Boolean.TRUE.equals(result);
+                                }
+                            }
+                            context = stageContext;
+                        } catch (TimeoutException e) {
+                            if (Boolean.TRUE.equals(stage.getFailOnExecutionTimeout())) {
+                                throw new WorkflowException(String.format(getMessage("WorkflowWorkerBean.stageExecutionTimeout"),
+                                        stage.getName(), getStageExecutionTimeoutSec(stage)), e);
+                            }
+                            log.warn("Execution of stage {} of workflow instance {}({}) timed out, it will be repeated",
+                                    stage.getName(), instance, instance.getId());
+                            success = false;
+                        } catch (RejectedExecutionException e) {
+                            //all stage threads are busy, execution is deferred without counting it as a repeat
+                            log.debug("Execution of stage {} of workflow instance {}({}) deferred, stage threads are busy",
+                                    stage.getName(), instance, instance.getId());
+                            success = false;
+                            deferred = true;
+                        } finally {
+                            if (!executing) {
+                                stageLimiter.release(stage);
                             }
                         }
-                        if (success) {
-                            context.putParam(WorkflowConstants.REPEAT, null);
-                        } else {
-                            //otherwise write the time of the execution
-                            context.putParam(WorkflowConstants.REPEAT, Long.toString(timeSource.currentTimeMillis()));
+                        if (!deferred) {
+                            if (success) {
+                                context.putParam(WorkflowConstants.REPEAT, null);
+                            } else {
+                                //otherwise write the time of the execution
+                                context.putParam(WorkflowConstants.REPEAT, Long.toString(timeSource.currentTimeMillis()));
+                                attempted = true;
+                                attempts++;
+                            }
+                            //store context parameters
+                            setExecutionContext(context, instance);
                         }
-                        //store context parameters
-                        setExecutionContext(context, instance);
-                    } else {
-                        success = false;
                     }
                 } catch (Exception e) {
                     log.error(String.format("Failed to evaluate groovy of workflow instance %s(%s) step %s (%s)",
@@ -829,24 +1539,154 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             fireEvent(entity, previousStep);
 
             if (success) {
-                finishTask(task, null, (Set<User>) null);
+                iterate(finishTaskInternal(task, null, null));
+            } else if (attempted) {
+                try {
+                    Integer maxAttempts = task.getStep().getRetryMaxAttempts();
+                    if (maxAttempts != null && maxAttempts > 0 && attempts >= maxAttempts) {
+                        //instance is parked until operator or signal wakes it up
+                        log.warn("Workflow instance {}({}) stalled after {} attempts of stage {}", instance, instance.getId(), attempts, stage.getName());
+                        metrics.increment(WorkflowMetricsRegistry.STALLED, stage.getName());
+                        setAttempts(instance, attempts, null, true);
+                    } else {
+                        //re-execution will be performed in next workflow heartbeat to support timeout and repeat feature
+                        setAttempts(instance, attempts, getNextWakeup(task, context, true, attempts), false);
+                    }
+                } finally {
+                    detach(instance);
+                }
             } else {
-                //re-execution will be performed in next workflow heartbeat to support timeout and repeat feature
-                detach(instance);
+                try {
+                    //re-execution will be performed in next workflow heartbeat to support timeout and repeat feature
+                    setNextWakeup(instance, deferred ? getDeferredWakeup(task, stage) : getNextWakeup(task, context, true, attempts));
+                } finally {
+                    detach(instance);
+                }
             }
         } else if (StageType.ARCHIVE.equals(stage.getType())) {//this last archive node - mark it's as done and finish workflow
             fireEvent(entity, previousStep);
 
-            finishTask(task, null, (Set<User>) null);
+            iterate(finishTaskInternal(task, null, null));
         } else if (StageType.USERS_INTERACTION.equals(stage.getType())) {
             fireEvent(entity, previousStep);
-            //re-execution will be performed in next workflow heartbeat to support timeout feature
-            detach(instance);
+            try {
+                //re-execution will be performed in next workflow heartbeat to support timeout feature
+                setNextWakeup(instance, getNextWakeup(task, null, false));
+            } finally {
+                detach(instance);
+            }
         } else {
             fireEvent(entity, previousStep);
         }
     }
 
+    /**
+     * Execute stage logic with stage execution time limit. Limited logic is performed in a separate thread
+     * with it's own copy of execution contexts of the current iteration, changed contexts are taken back
+     * only if logic finished in time. If timed out logic is still running, the instance is kept busy until it's finished.
+     * Stage limiter permit taken before is released when the logic is actually finished.
+     *
+     * @throws TimeoutException           if stage execution time elapsed
+     * @throws RejectedExecutionException if all stage threads are busy
+     */
+    protected <T> T executeStage(WorkflowInstance instance, Stage stage, String metric, Callable<T> logic) throws Exception {
+        int timeoutSec = getStageExecutionTimeoutSec(stage);
+        long start = System.currentTimeMillis();
+        try {
+            if (timeoutSec <= 0) {
+                try {
+                    return logic.call();
+                } finally {
+                    stageLimiter.release(stage);
+                }
+            }
+            ContextSession session = contextSession.get();
+            ContextSession stageSession = session == null ? null : session.copy();
+            StageRun run = new StageRun();
+            T result;
+            try {
+                result = stageExecutor.execute(stage.getName(), () -> {
+                    contextSession.set(stageSession);
+                    try {
+                        return logic.call();
+                    } finally {
+                        contextSession.remove();
+                    }
+                }, timeoutSec * 1000L, () -> finishStage(instance, stage, run));
+            } catch (TimeoutException e) {
+                orphanStage(instance, run);
+                throw e;
+            }
+            if (session != null) {
+                session.adopt(stageSession);
+            }
+            return result;
+        } finally {
+            metrics.record(metric, stage.getName(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Keep workflow instance busy until timed out stage logic will be actually finished
+     */
+    protected void orphanStage(WorkflowInstance instance, StageRun run) {
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (!run.finished) {
+                orphanedStages.put(instance.getId(), run);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stage logic is finished or execution is rejected. Called by the stage thread,
+     * after timeout it can be much later than the instance iteration.
+     */
+    protected void finishStage(WorkflowInstance instance, Stage stage, StageRun run) {
+        //hung logic keeps it's permit, so stage concurrency limit is not exceeded by the repeated executions
+        stageLimiter.release(stage);
+
+        boolean orphaned;
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            run.finished = true;
+            orphaned = orphanedStages.remove(instance.getId(), run);
+        } finally {
+            writeLock.unlock();
+        }
+        if (orphaned) {
+            log.info("Timed out stage logic of workflow instance {}({}) finished", instance, instance.getId());
+            if (leaseManager.isEnabled()) {
+                //lease was kept by detaching while the stage logic was running
+                releaseClaimedLease(instance.getId());
+            }
+        }
+    }
+
+    /**
+     * @return time of the next try of execution which was deferred by stage limits, but not later than step timeout
+     */
+    protected Date getDeferredWakeup(WorkflowInstanceTask task, Stage stage) {
+        Date wakeup = new Date(timeSource.currentTimeMillis() + stageLimiter.getRetryDelayMs(stage));
+        Date timeout = getNextWakeup(task, null, false);
+        return timeout != null && timeout.before(wakeup) ? timeout : wakeup;
+    }
+
+    /**
+     * @return maximum execution time of the stage logic or zero if it's unlimited
+     */
+    protected int getStageExecutionTimeoutSec(Stage stage) {
+        if (stage.getExecutionTimeoutSec() != null && stage.getExecutionTimeoutSec() > 0) {
+            return stage.getExecutionTimeoutSec();
+        }
+        Integer timeout = config.getStageExecutionTimeoutSec();
+        return timeout == null ? 0 : Math.max(0, timeout);
+    }
+
     @Override
     public void finishTask(WorkflowInstanceTask task, String... performersLogin) throws WorkflowException {
         finishTask(task, null, performersLogin);
@@ -854,31 +1694,187 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
 
     @Override
     public void finishTask(WorkflowInstanceTask task, @Nullable Map<String, String> params, String... performersLogin) throws WorkflowException {
+        finishTask(task, params, resolvePerformers(performersLogin));
+    }
+
+    /**
+     * Find users by their logins
+     *
+     * @param performersLogin users logins, or, if nothing passed, only a current user will be used
+     * @return found users
+     */
+    protected Set<User> resolvePerformers(@Nullable String... performersLogin) {
         Set<User> performers;
         if (performersLogin != null && performersLogin.length > 0) {
-            performers = new HashSet<>(performersLogin.length);
+            Map<String, User> users = userResolver.resolve(Arrays.asList(performersLogin));
+            performers = new HashSet<>(users.values());
             for (String login : performersLogin) {
-                if (!StringUtils.isBlank(login)) {
-                    User user = dataManager.load(User.class)
-                            .query("select e from sec$User e where e.loginLowerCase = :login")
-                            .parameter("login", login.toLowerCase())
-                            .view(View.MINIMAL)
-                            .optional()
-                            .orElse(null);
-                    if (user == null) {
-                        log.warn("User with login {} not found", login);
-                    } else {
-                        performers.add(user);
-                    }
+                if (!StringUtils.isBlank(login) && !users.containsKey(login.toLowerCase())) {
+                    log.warn("User with login {} not found", login);
                 }
             }
         } else {
             performers = Collections.singleton(userSessionSource.getUserSession().getUser());
         }
-        finishTask(task, params, performers);
+        return performers;
     }
 
     public void finishTask(WorkflowInstanceTask task, @Nullable Map<String, String> params, Set<User> performers) throws WorkflowException {
+        WorkflowInstance instance = finishTaskInternal(task, params, performers);
+
+        start(instance);//move to the next step
+    }
+
+    @Override
+    public WorkflowBatchResult finishTasks(Collection<WorkflowInstanceTask> tasks, @Nullable Map<String, String> params, String... performersLogin) {
+        Preconditions.checkNotNullArgument(tasks, getMessage("WorkflowWorkerBean.emptyWorkflowInstanceTask"));
+
+        WorkflowBatchResult result = new WorkflowBatchResult();
+        if (tasks.isEmpty()) {
+            return result;
+        }
+        Set<User> performers = resolvePerformers(performersLogin);
+
+        List<UUID> ids = tasks.stream()
+                .map(WorkflowInstanceTask::getId)
+                .distinct()
+                .collect(Collectors.toList());
+        int chunkSize = Math.max(1, config.getBatchChunkSize() == null ? 50 : config.getBatchChunkSize());
+
+        //task ID -> workflow instance which should be moved to the next step
+        Map<UUID, WorkflowInstance> finished = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            List<UUID> chunkIds = ids.subList(i, Math.min(i + chunkSize, ids.size()));
+
+            List<WorkflowInstanceTask> chunk = new ArrayList<>(chunkIds.size());
+            Map<UUID, WorkflowInstanceTask> loaded = loadWorkflowInstanceTasks(chunkIds);
+            for (UUID id : chunkIds) {
+                WorkflowInstanceTask task = loaded.get(id);
+                if (task == null) {
+                    result.addError(id, getMessage("WorkflowWorkerBean.workflowInstanceTaskNotFound"));
+                } else if (!Boolean.TRUE.equals(task.getInstance().getWorkflow().getActive())) {
+                    result.addError(id, getMessage("WorkflowWorkerBean.workflowNotActive"));
+                } else {
+                    chunk.add(task);
+                }
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+
+            Map<UUID, WorkflowInstance> chunkFinished = new LinkedHashMap<>();
+            try (Transaction tr = persistence.createTransaction()) {
+                for (WorkflowInstanceTask task : chunk) {
+                    chunkFinished.put(task.getId(), finishTaskInternal(task, params, performers));
+                }
+                tr.commit();
+            } catch (Exception e) {
+                log.debug("Failed to finish workflow tasks chunk, tasks will be finished one by one", e);
+
+                chunkFinished.clear();
+                for (WorkflowInstanceTask task : chunk) {
+                    try {
+                        chunkFinished.put(task.getId(), finishTaskInternal(task, params, performers));
+                    } catch (Exception ex) {
+                        log.warn("Failed to finish workflow task {}({}): {}", task, task.getId(), ex.getMessage());
+                        result.addError(task.getId(), ex.getMessage());
+                    }
+                }
+            }
+            for (Map.Entry<UUID, WorkflowInstance> entry : chunkFinished.entrySet()) {
+                result.addFinished(entry.getKey(), entry.getValue().getId());
+            }
+            finished.putAll(chunkFinished);
+        }
+
+        Set<UUID> instanceIds = new HashSet<>();
+        for (WorkflowInstance instance : finished.values()) {
+            instanceIds.add(instance.getId());
+        }
+        prefetchDirections(instanceIds);
+
+        continueWorkflows(finished, result::addError);
+
+        return result;
+    }
+
+    /**
+     * Load workflow instance tasks by one query
+     *
+     * @param ids workflow instance tasks IDs
+     * @return found tasks by their IDs
+     */
+    protected Map<UUID, WorkflowInstanceTask> loadWorkflowInstanceTasks(Collection<UUID> ids) {
+        return dataManager.load(WorkflowInstanceTask.class)
+                .query("select e from wfstp$WorkflowInstanceTask e where e.id in :ids")
+                .parameter("ids", ids)
+                .view("workflowInstanceTask-detailed")
+                .list()
+                .stream()
+                .collect(Collectors.toMap(WorkflowInstanceTask::getId, Function.identity()));
+    }
+
+    /**
+     * Move workflow instances to the next steps in parallel by engine executor.
+     * If asynchronous mode is disabled calling thread will wait continuation of all instances.
+     *
+     * @param instances workflow instances by processing keys
+     * @param errors    receiver of continuation errors by processing keys
+     */
+    protected <K> void continueWorkflows(Map<K, WorkflowInstance> instances, BiConsumer<K, String> errors) {
+        boolean async = Boolean.TRUE.equals(config.getAsyncEnable());
+
+        entityPrefetcher.prefetch(instances.values());
+
+        Map<K, Future<?>> futures = new LinkedHashMap<>();
+        for (Map.Entry<K, WorkflowInstance> entry : instances.entrySet()) {
+            WorkflowInstance instance = entry.getValue();
+            try {
+                futures.put(entry.getKey(), executor.submit(instance.getId(), () -> {
+                    try {
+                        iterate(instance);
+                    } catch (WorkflowException e) {
+                        log.warn("Failed to continue workflow instance {}({}): {}", instance, instance.getId(), e.getMessage());
+                        throw new RuntimeException(e.getMessage(), e);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                log.warn("Workflow engine queue is full. Workflow instance {}({}) will be continued in the calling thread",
+                        instance, instance.getId());
+                try {
+                    iterate(instance);
+                } catch (Exception ex) {
+                    errors.accept(entry.getKey(), ex.getMessage());
+                }
+            }
+        }
+        if (async || futures.isEmpty()) {
+            return;
+        }
+
+        long timeoutMs = TimeUnit.SECONDS.toMillis(config.getBatchTimeoutSec() == null ? 600 : config.getBatchTimeoutSec());
+        long deadline = System.currentTimeMillis() + Math.max(timeoutMs, 0);
+        for (Map.Entry<K, Future<?>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().get(Math.max(deadline - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                errors.accept(entry.getKey(), e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+            } catch (TimeoutException e) {
+                errors.accept(entry.getKey(), getMessage("WorkflowWorkerBean.batchTimeout"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.accept(entry.getKey(), getMessage("WorkflowWorkerBean.batchTimeout"));
+            }
+        }
+    }
+
+    /**
+     * Complete provided workflow task without moving of workflow instance
+     *
+     * @return workflow instance of the completed task
+     */
+    protected WorkflowInstance finishTaskInternal(WorkflowInstanceTask task, @Nullable Map<String, String> params,
+                                                  @Nullable Set<User> performers) throws WorkflowException {
         Preconditions.checkNotNullArgument(task, getMessage("WorkflowWorkerBean.emptyWorkflowInstanceTask"));
 
         WorkflowInstance instance;
@@ -893,6 +1889,14 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             task.setPerformers(performers);
 
             instance = task.getInstance();
+            checkLease(instance);
+
+            //instance is moving, heartbeat should pick it up if moving will be interrupted
+            instance = em.reloadNN(instance, View.LOCAL);
+            instance.setNextWakeupAt(timeSource.currentTimestamp());
+            //attempts are counted per task
+            instance.setAttempts(null);
+            instance.setStalled(null);
 
             //cleanup variable directions
             String directionVariables = task.getStep().getStage().getDirectionVariables();
@@ -917,11 +1921,12 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                 }
                 setExecutionContext(ctx, instance);
             }
+            //directions variables must be stored together with the task completion
+            storeExecutionContext(instance);
 
             tr.commit();
         }
-
-        iterate(instance);//move to the next step
+        return instance;
     }
 
     /**
@@ -931,8 +1936,12 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         try (Transaction tr = persistence.getTransaction()) {
             EntityManager em = persistence.getEntityManager();
 
+            checkLease(instance);
+
             instance = em.reloadNN(instance, View.LOCAL);
             instance.setEndDate(timeSource.currentTimestamp());
+            instance.setNextWakeupAt(null);
+            storeExecutionContext(instance);
 
             if (entity != null) {
                 entity = em.reloadNN(entity, View.LOCAL);
@@ -945,27 +1954,47 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             log.error(String.format("Failed to mark as done workflow instance %s (%s)", instance, instance.getId()), e);
             throw new WorkflowException(String.format(getMessage("WorkflowWorkerBean.failedToDoneWorkflow"), instance, instance.getId()), e);
         } finally {
+            timer.cancel(instance.getId());
             detach(instance);
         }
     }
 
     /**
-     * Workflow finished unsuccessful, mark it as failed and all related entities
+     * Workflow finished unsuccessful, mark it as failed and all related entities.
+     * Instance keeps short failure message and reference to the deduplicated error signature.
      */
     protected void markAsFailed(WorkflowInstance instance, @Nullable WorkflowEntity entity,
                                 @Nullable WorkflowInstanceTask task, @Nullable Exception e) throws WorkflowException {
-        markAsFailed(instance, entity, task, e == null ? null : ExceptionUtils.getFullStackTrace(e));
+        if (e == null) {
+            markAsFailed(instance, entity, task, (String) null);
+            return;
+        }
+        UUID errorId = errorStore.register(e);
+        //keep full trace in the instance if signature is not stored
+        markAsFailed(instance, entity, task,
+                errorId == null ? ExceptionUtils.getFullStackTrace(e) : errorStore.getShortMessage(e), errorId);
     }
 
     protected void markAsFailed(WorkflowInstance instance, @Nullable WorkflowEntity entity,
                                 @Nullable WorkflowInstanceTask task, @Nullable String error) throws WorkflowException {
+        markAsFailed(instance, entity, task, error, null);
+    }
+
+    protected void markAsFailed(WorkflowInstance instance, @Nullable WorkflowEntity entity,
+                                @Nullable WorkflowInstanceTask task, @Nullable String error, @Nullable UUID errorId) throws WorkflowException {
+        metrics.increment(WorkflowMetricsRegistry.FAILURES, getMetricTag(instance));
         try (Transaction tr = persistence.getTransaction()) {
             EntityManager em = persistence.getEntityManager();
 
+            checkLease(instance);
+
             instance = em.reloadNN(instance, View.LOCAL);
             instance.setEndDate(timeSource.currentTimestamp());
             instance.setError(StringUtils.isEmpty(error) ? getMessage("WorkflowWorkerBean.internalServerError") : error);
+            instance.setErrorRef(errorId == null ? null : em.getReference(WorkflowError.class, errorId));
             instance.setErrorInTask(task != null);
+            instance.setNextWakeupAt(null);
+            storeExecutionContext(instance);
 
             if (entity != null) {
                 entity = em.reloadNN(entity, View.LOCAL);
@@ -983,6 +2012,7 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                     instance, instance.getId(), error), e);
             throw new WorkflowException(String.format(getMessage("WorkflowWorkerBean.failedToWriteException"), instance, instance.getId()), e);
         } finally {
+            timer.cancel(instance.getId());
             detach(instance);
         }
     }
@@ -991,32 +2021,53 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     public WorkflowExecutionContext getExecutionContext(WorkflowInstance instance) {
         Preconditions.checkNotNullArgument(instance, getMessage("WorkflowWorkerBean.emptyWorkflowInstance"));
 
+        ContextSession session = contextSession.get();
+        if (session != null) {
+            final UUID id = instance.getId();
+            return session.get(id, () -> loadExecutionContext(id));
+        }
+        return loadExecutionContext(instance.getId());
+    }
+
+    /**
+     * Load and parse execution context of workflow instance from the database
+     */
+    protected WorkflowExecutionContext loadExecutionContext(UUID instanceId) {
         try (Transaction tr = persistence.getTransaction()) {
             EntityManager em = persistence.getEntityManager();
-            instance = em.reloadNN(instance, View.LOCAL);
-
-            WorkflowExecutionContext ctx;
-            if (!StringUtils.isEmpty(instance.getContext())) {
-                ctx = jsonUtil.fromJson(instance.getContext(), WorkflowExecutionContext.class);
-            } else {
-                ctx = new WorkflowExecutionContext();
+            WorkflowInstance instance = em.find(WorkflowInstance.class, instanceId, View.LOCAL);
+            if (instance == null) {
+                throw new RuntimeException(String.format("Workflow instance %s not found", instanceId));
             }
 
+            WorkflowExecutionContext ctx = parseExecutionContext(instance.getContext());
+
             tr.commit();
 
             return ctx;
         }
     }
 
+    protected WorkflowExecutionContext parseExecutionContext(@Nullable String text) {
+        return contextCodec.decode(text);
+    }
+
     @Override
     public void setExecutionContext(WorkflowExecutionContext context, WorkflowInstance instance) {
         Preconditions.checkNotNullArgument(instance, getMessage("WorkflowWorkerBean.emptyWorkflowInstance"));
 
+        ContextSession session = contextSession.get();
+        if (session != null) {
+            final UUID id = instance.getId();
+            session.set(id, context, () -> loadExecutionContext(id));
+            return;
+        }
+
         try (Transaction tr = persistence.getTransaction()) {
             EntityManager em = persistence.getEntityManager();
             instance = em.reloadNN(instance, View.LOCAL);
 
-            String text = context == null ? null : jsonUtil.toJson(context);
+            String text = context == null ? null : contextCodec.encode(context);
             if (!Objects.equals(instance.getContext(), text)) {
                 instance.setContext(text);
             }
@@ -1035,6 +2086,12 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     @Override
     public void setParameter(WorkflowInstance instance, @Nullable String key, @Nullable String value) {
         Preconditions.checkNotNullArgument(instance, getMessage("WorkflowWorkerBean.emptyWorkflowInstance"));
+        if (contextSession.get() != null) {
+            WorkflowExecutionContext ctx = getExecutionContext(instance);
+            ctx.putParam(key, value);
+            setExecutionContext(ctx, instance);
+            return;
+        }
         try (Transaction tr = persistence.getTransaction()) {
             WorkflowExecutionContext ctx = getExecutionContext(instance);
             ctx.putParam(key, value);
@@ -1044,37 +2101,424 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         }
     }
 
-    @Authenticated
-    @Override
-    public void performWorkflowHeartbeat() {
-        if (Boolean.TRUE.equals(config.getHeartbeatEnable())) {
+    /**
+     * Store execution context changed in the current iteration, must be called inside of the transaction
+     * which is changing workflow instance state after the fencing check
+     */
+    protected void storeExecutionContext(WorkflowInstance instance) {
+        ContextSession session = contextSession.get();
+        if (session != null) {
+            flushExecutionContext(instance.getId(), session);
+        }
+    }
 
-            Integer callsToSkip = config.getDelayCallCount();
-            if (callsToSkip != null) {
-                if (callCount < callsToSkip) {
-                    callCount++;
-                    return;
-                }
+    /**
+     * Store execution contexts changed in the iteration which were not stored together with instances state,
+     * e.g. contexts of other instances changed by stage logic. Context is written only by the thread which is
+     * processing the instance and holds it's lease.
+     *
+     * @param propagate throw exception if some context is not stored, otherwise failures are only logged
+     * @throws WorkflowException if some context is not stored
+     */
+    protected void storeExecutionContexts(ContextSession session, boolean propagate) throws WorkflowException {
+        WorkflowException failure = null;
+        for (UUID id : session.getInstances()) {
+            if (!session.isDirty(id)) {
+                continue;
             }
-
-            Set<UUID> processing;
-
-            ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
-            readLock.lock();
+            WorkflowInstance instance = metadata.create(WorkflowInstance.class);
+            instance.setId(id);
             try {
-                processing = processingInstances.keySet();
-            } finally {
-                readLock.unlock();
+                if (!attach(instance)) {
+                    throw new IllegalStateException("Workflow instance is processing by another thread or node");
+                }
+                try (Transaction tr = persistence.getTransaction()) {
+                    checkLease(instance);
+                    flushExecutionContext(id, session);
+
+                    tr.commit();
+                } finally {
+                    detach(instance);
+                }
+            } catch (Exception e) {
+                log.error(String.format("Failed to store execution context of workflow instance %s", id), e);
+                if (failure == null) {
+                    failure = new WorkflowException(String.format(getMessage("WorkflowWorkerBean.failedToStoreContext"), id), e);
+                }
             }
+        }
+        if (propagate && failure != null) {
+            throw failure;
+        }
+    }
 
-            List<WorkflowInstance> notFinished = getNotFinishedWorkflowInstances(processing);
-            for (WorkflowInstance instance : notFinished) {
+    /**
+     * Store changed in the session parameters of workflow instance execution context.
+     * Only changed parameters are written over the actual database state.
+     */
+    protected void flushExecutionContext(UUID instanceId, ContextSession session) {
+        if (!session.isDirty(instanceId)) {
+            return;
+        }
+        try (Transaction tr = persistence.getTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            WorkflowInstance instance = em.find(WorkflowInstance.class, instanceId, View.LOCAL);
+            if (instance != null) {
+                WorkflowExecutionContext ctx = session.merge(instanceId, parseExecutionContext(instance.getContext()));
+
+                String text = contextCodec.encode(ctx);
+                if (!Objects.equals(instance.getContext(), text)) {
+                    instance.setContext(text);
+                }
+            }
+            tr.commit();
+        }
+    }
+
+    @Authenticated
+    @Override
+    public void performWorkflowHeartbeat() {
+        if (Boolean.TRUE.equals(config.getHeartbeatEnable())) {
+
+            Integer callsToSkip = config.getDelayCallCount();
+            if (callsToSkip != null) {
+                if (callCount < callsToSkip) {
+                    callCount++;
+                    return;
+                }
+            }
+
+            if (!heartbeatRunning.compareAndSet(false, true)) {
+                log.debug("Workflow heartbeat is already running");
+                return;
+            }
+            try {
+                heartbeat();
+            } finally {
+                heartbeatRunning.set(false);
+            }
+        }
+    }
+
+    /**
+     * Dispatch due workflow instances into the heartbeat worker pool and wait them until the tick deadline
+     */
+    protected void heartbeat() {
+        if (timer.isEnabled()) {
+            //schedule wakeups which came into timer horizon since previous heartbeat
+            timer.reload();
+        }
+
+        int batchSize = Math.max(1, config.getHeartbeatBatchSize());
+        int budget = config.getHeartbeatMaxInstances() == null ? 0 : config.getHeartbeatMaxInstances();
+        int timeoutSec = config.getHeartbeatTimeoutSec() == null ? 0 : config.getHeartbeatTimeoutSec();
+        long start = System.currentTimeMillis();
+        long deadline = timeoutSec > 0 ? start + timeoutSec * 1000L : 0;
+
+        HeartbeatTick tick = new HeartbeatTick();
+
+        Date lastCreateTs = heartbeatLastCreateTs;
+        UUID lastId = heartbeatLastId;
+        int processed = 0;
+        boolean exhausted = false;
+
+        boolean leasing = leaseManager.isEnabled();
+
+        List<WorkflowInstance> page;
+        do {
+            page = leasing ?
+                    getClaimedWorkflowInstances(leaseManager.claim(lastCreateTs, lastId, batchSize)) :
+                    getNotFinishedWorkflowInstances(lastCreateTs, lastId, batchSize);
+
+            //prefetch only instances which are going to be dispatched in this tick
+            Set<UUID> instanceIds = new HashSet<>();
+            List<WorkflowInstance> dispatching = new ArrayList<>();
+            for (WorkflowInstance instance : page) {
+                if (budget > 0 && processed + dispatching.size() >= budget) {
+                    break;
+                }
+                if (!heartbeatQueued.contains(instance.getId()) && !isPaused(instance) && !isAttached(instance)) {
+                    instanceIds.add(instance.getId());
+                    dispatching.add(instance);
+                }
+            }
+            prefetchDirections(instanceIds);
+            entityPrefetcher.prefetch(dispatching);
+
+            for (WorkflowInstance instance : page) {
+                if (!exhausted && ((budget > 0 && processed >= budget) || (deadline > 0 && System.currentTimeMillis() >= deadline))) {
+                    exhausted = true;
+                }
+                if (exhausted) {
+                    discardPrefetched(instance.getId());
+                    if (leasing && !heartbeatQueued.contains(instance.getId())) {
+                        //give back claimed but not dispatched instances to the cluster
+                        releaseClaimedLease(instance.getId());
+                    }
+                    continue;
+                }
+                if (isPaused(instance)) {
+                    if (leasing && !heartbeatQueued.contains(instance.getId())) {
+                        releaseClaimedLease(instance.getId());
+                    }
+                    lastCreateTs = instance.getCreateTs();
+                    lastId = instance.getId();
+                    continue;
+                }
+                if (!isAttached(instance) && !heartbeatQueued.contains(instance.getId())) {
+                    if (!dispatchHeartbeat(instance, deadline, tick)) {
+                        exhausted = true;
+                        discardPrefetched(instance.getId());
+                        if (leasing) {
+                            releaseClaimedLease(instance.getId());
+                        }
+                        continue;
+                    }
+                    processed++;
+                } else {
+                    //instance is processing by another thread which is not using prefetched data
+                    discardPrefetched(instance.getId());
+                }
+                lastCreateTs = instance.getCreateTs();
+                lastId = instance.getId();
+            }
+        } while (!exhausted && page.size() == batchSize);
+
+        //continue from the same place in the next tick if tick was interrupted, otherwise start from the beginning
+        heartbeatLastCreateTs = exhausted ? lastCreateTs : null;
+        heartbeatLastId = exhausted ? lastId : null;
+
+        try {
+            if (!tick.await(deadline)) {
+                log.warn("Workflow heartbeat deadline elapsed, not finished instances will be continued in background");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        metrics.record(WorkflowMetricsRegistry.HEARTBEAT_DURATION, null, System.currentTimeMillis() - start);
+        metrics.record(WorkflowMetricsRegistry.HEARTBEAT_INSTANCES, null, processed);
+
+        log.debug("Workflow heartbeat dispatched {} instances", processed);
+    }
+
+    /**
+     * Forget prefetched entity and directions of workflow instance which is not dispatched
+     */
+    protected void discardPrefetched(UUID instanceId) {
+        entityPrefetcher.discard(instanceId);
+        directionEvaluator.discard(instanceId);
+    }
+
+    @Authenticated
+    @Override
+    public void performWorkflowWakeup(UUID instanceId) {
+        Preconditions.checkNotNullArgument(instanceId);
+
+        WorkflowInstance instance = dataManager.load(WorkflowInstance.class)
+                .query("select e from wfstp$WorkflowInstance e where e.id = :id and " +
+                        "e.endDate is null and e.error is null and e.nextWakeupAt <= :now")
+                .parameter("id", instanceId)
+                .parameter("now", timeSource.currentTimestamp())
+                .view("workflowInstance-heartbeat")
+                .optional()
+                .orElse(null);
+        if (instance != null && !isAttached(instance) && !heartbeatQueued.contains(instanceId)) {
+            //if heartbeat pool is busy instance will be processed by the next heartbeat
+            if (!dispatchHeartbeat(instance, System.currentTimeMillis() + WAKEUP_DISPATCH_TIMEOUT_MS, new HeartbeatTick())) {
+                log.warn("Workflow heartbeat pool is full, wakeup of workflow instance {}({}) postponed", instance, instanceId);
+            }
+        }
+    }
+
+    /**
+     * Enqueue workflow instance into the heartbeat worker pool
+     *
+     * @return false if instance can't be enqueued before the deadline
+     */
+    protected boolean dispatchHeartbeat(WorkflowInstance instance, long deadline, HeartbeatTick tick) {
+        UUID id = instance.getId();
+        if (!heartbeatQueued.add(id)) {
+            return true;
+        }
+        tick.started();
+        try {
+            long timeout = deadline > 0 ? Math.max(1, deadline - System.currentTimeMillis()) : 0;
+            getHeartbeatExecutor().submit(id, () -> {
                 try {
-                    iterate(instance);
+                    authentication.begin();
+                    try {
+                        iterate(instance);
+                    } finally {
+                        authentication.end();
+                    }
                 } catch (WorkflowException e) {
                     log.warn("Failed to restart workflow instance from heartbeat");
+                } catch (Exception e) {
+                    log.error(String.format("Failed to process workflow instance %s(%s) from heartbeat", instance, id), e);
+                } finally {
+                    if (leaseManager.isEnabled()) {
+                        //lease is handed over to the processing thread if instance is processing by another thread
+                        releaseClaimedLease(id);
+                    }
+                    heartbeatQueued.remove(id);
+                    tick.finished();
                 }
+            }, timeout);
+            return true;
+        } catch (RejectedExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
             }
+            heartbeatQueued.remove(id);
+            tick.finished();
+            return false;
+        }
+    }
+
+    @Override
+    public List<WorkflowProcessingInstance> getProcessingInstances() {
+        List<WorkflowProcessingInstance> result = new ArrayList<>();
+        ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            for (Map.Entry<UUID, Thread> entry : processingInstances.entrySet()) {
+                Long since = processingSince.get(entry.getKey());
+                result.add(new WorkflowProcessingInstance(entry.getKey(), entry.getValue().getName(), entry.getValue().isAlive(),
+                        new Date(since == null ? System.currentTimeMillis() : since)));
+            }
+        } finally {
+            readLock.unlock();
+        }
+        result.sort(Comparator.comparing(WorkflowProcessingInstance::getSince));
+        return result;
+    }
+
+    @Override
+    public boolean releaseProcessingInstance(UUID instanceId) {
+        Preconditions.checkNotNullArgument(instanceId);
+
+        Thread thread;
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            thread = processingInstances.remove(instanceId);
+            processingSince.remove(instanceId);
+            orphanedStages.remove(instanceId);
+        } finally {
+            writeLock.unlock();
+        }
+        //allow heartbeat to dispatch the instance again
+        heartbeatQueued.remove(instanceId);
+        if (thread == null) {
+            return false;
+        }
+        log.warn("Workflow instance {} processing by thread {} was force released", instanceId, thread.getName());
+
+        if (leaseManager.isEnabled()) {
+            try {
+                leaseManager.release(instanceId);
+            } catch (RuntimeException e) {
+                log.warn("Failed to release lease of workflow instance {}, it will expire later", instanceId);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void setHeartbeatThreadCount(int threads) {
+        threads = Math.max(1, threads);
+        config.setHeartbeatThreadCount(threads);
+
+        PartitionedExecutor previous = heartbeatExecutor;
+        if (previous != null && previous.getPartitionsCount() != threads) {
+            heartbeatExecutor = new PartitionedExecutor("wfstp-heartbeat", threads, config.getHeartbeatQueueSize());
+            //already enqueued instances will be processed by the previous pool
+            previous.shutdown();
+
+            log.info("Workflow heartbeat pool resized to {} threads", threads);
+        }
+    }
+
+    @Override
+    public Set<UUID> getPausedWorkflows() {
+        String text = StringUtils.trimToEmpty(config.getPausedWorkflows());
+        PausedWorkflows paused = pausedWorkflows;
+        if (!paused.text.equals(text)) {
+            Set<UUID> ids = new LinkedHashSet<>();
+            for (String id : text.split(",")) {
+                if (!StringUtils.isBlank(id)) {
+                    try {
+                        ids.add(UuidProvider.fromString(id.trim()));
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Wrong paused workflow ID {}", id);
+                    }
+                }
+            }
+            paused = new PausedWorkflows(text, Collections.unmodifiableSet(ids));
+            pausedWorkflows = paused;
+        }
+        return paused.ids;
+    }
+
+    @Override
+    public synchronized void setPaused(UUID workflowId, boolean paused) {
+        Preconditions.checkNotNullArgument(workflowId);
+
+        Set<UUID> ids = new LinkedHashSet<>(getPausedWorkflows());
+        if (paused ? ids.add(workflowId) : ids.remove(workflowId)) {
+            config.setPausedWorkflows(ids.stream().map(UUID::toString).collect(Collectors.joining(",")));
+
+            log.info("Workflow {} {}", workflowId, paused ? "paused" : "resumed");
+        }
+    }
+
+    /**
+     * @return is workflow of the instance paused
+     */
+    protected boolean isPaused(WorkflowInstance instance) {
+        Set<UUID> paused = getPausedWorkflows();
+        return !paused.isEmpty() && PersistenceHelper.isLoaded(instance, "workflow") &&
+                instance.getWorkflow() != null && paused.contains(instance.getWorkflow().getId());
+    }
+
+    protected PartitionedExecutor getHeartbeatExecutor() {
+        PartitionedExecutor result = heartbeatExecutor;
+        if (result == null) {
+            synchronized (this) {
+                result = heartbeatExecutor;
+                if (result == null) {
+                    result = new PartitionedExecutor("wfstp-heartbeat",
+                            config.getHeartbeatThreadCount(), config.getHeartbeatQueueSize());
+                    heartbeatExecutor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    @PostConstruct
+    public void init() {
+        metrics.gauge("engine.queue", executor::getQueueSize);
+        metrics.gauge("engine.active", executor::getActiveCount);
+        metrics.gauge("heartbeat.queued", heartbeatQueued::size);
+        metrics.gauge("heartbeat.active", () -> heartbeatExecutor == null ? 0 : heartbeatExecutor.getActiveCount());
+        metrics.gauge("processing.instances", () -> {
+            ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                return processingInstances.size();
+            } finally {
+                readLock.unlock();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PartitionedExecutor executor = heartbeatExecutor;
+        if (executor != null) {
+            executor.shutdown();
         }
     }
 
@@ -1085,50 +2529,43 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
      */
     @Nullable
     protected WorkflowInstanceTask getLastTask(WorkflowInstance instance) {
-        List<WorkflowInstanceTask> list = dataManager.loadList(LoadContext.create(WorkflowInstanceTask.class)
-                .setQuery(new LoadContext.Query("select e from wfstp$WorkflowInstanceTask e where e.instance.id = :instanceId " +
-                        "order by e.createTs desc")
-                        .setParameter("instanceId", instance.getId())
-                        .setMaxResults(1))
-                .setView("workflowInstanceTask-process"));
-        if (!CollectionUtils.isEmpty(list)) {
-            return list.get(0);
-        }
-        return null;
+        return dataManager.load(WorkflowInstanceTask.class)
+                .query("select e.currentTask from wfstp$WorkflowInstance e where e.id = :instanceId")
+                .parameter("instanceId", instance.getId())
+                .view("workflowInstanceTask-graph")
+                .optional()
+                .orElse(null);
     }
 
-    protected Step getStartStep(WorkflowInstance instance) {
-        List<Step> list = dataManager.loadList(LoadContext.create(Step.class)
-                .setQuery(new LoadContext.Query("select s from wfstp$WorkflowInstance i " +
-                        "join i.workflow w " +
-                        "join w.steps s " +
-                        "where i.id = :instanceId and s.start = true")
-                        .setParameter("instanceId", instance.getId())
-                        .setMaxResults(1))
-                .setView("step-process"));
-        if (!CollectionUtils.isEmpty(list)) {
-            return list.get(0);
-        }
-        return getFirstStep(instance);
+    /**
+     * Point workflow instance to its last created task in current transaction.
+     * Bulk update is used to not conflict with another changes of the instance.
+     *
+     * @param instanceId workflow instance ID
+     * @param task       last created task or null
+     */
+    protected void setCurrentTask(UUID instanceId, @Nullable WorkflowInstanceTask task) {
+        persistence.getEntityManager()
+                .createQuery("update wfstp$WorkflowInstance e set e.currentTask = :task, e.currentStep = :step where e.id = :id")
+                .setParameter("task", task, false)
+                .setParameter("step", task == null ? null : task.getStep(), false)
+                .setParameter("id", instanceId)
+                .executeUpdate();
     }
 
     /**
-     * Retrieve from database first step by workflow instance
+     * Retrieve workflow step from the scheme. If the step is absent the scheme is outdated and will be reloaded.
      */
-    @Nullable
-    protected Step getFirstStep(WorkflowInstance instance) {
-        List<Step> list = dataManager.loadList(LoadContext.create(Step.class)
-                .setQuery(new LoadContext.Query("select s from wfstp$WorkflowInstance i " +
-                        "join i.workflow w " +
-                        "join w.steps s " +
-                        "where i.id = :instanceId order by s.order asc")
-                        .setParameter("instanceId", instance.getId())
-                        .setMaxResults(1))
-                .setView("step-process"));
-        if (!CollectionUtils.isEmpty(list)) {
-            return list.get(0);
+    protected Step getStep(WorkflowGraph graph, UUID stepId) {
+        Step step = graph.getStep(stepId);
+        if (step == null) {
+            graphCache.invalidate(graph.getWorkflowId());
+            step = graphCache.get(graph.getWorkflowId()).getStep(stepId);
+            if (step == null) {
+                throw new IllegalStateException(String.format("Step %s not found in workflow %s", stepId, graph.getWorkflowId()));
+            }
         }
-        return null;
+        return step;
     }
 
     /**
@@ -1149,13 +2586,49 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
     }
 
     /**
-     * Retrieve all not finished workflow instances
+     * Retrieve next page of not finished and due workflow instances ordered by creation time and ID
+     *
+     * @param lastCreateTs creation time of the last instance from previous page or null if this is a first page
+     * @param lastId       ID of the last instance from previous page or null if this is a first page
+     * @param pageSize     maximum count of loading instances
      */
-    protected List<WorkflowInstance> getNotFinishedWorkflowInstances(Set<UUID> processingIds) {
+    protected List<WorkflowInstance> getNotFinishedWorkflowInstances(@Nullable Date lastCreateTs, @Nullable UUID lastId, int pageSize) {
+        if (lastCreateTs == null || lastId == null) {
+            return dataManager.load(WorkflowInstance.class)
+                    .query("select e from wfstp$WorkflowInstance e where e.endDate is null and e.error is null and " +
+                            "e.nextWakeupAt <= :now " +
+                            "order by e.createTs, e.id")
+                    .parameter("now", timeSource.currentTimestamp())
+                    .maxResults(pageSize)
+                    .view("workflowInstance-heartbeat")
+                    .list();
+        }
         return dataManager.load(WorkflowInstance.class)
-                .query("select e from wfstp$WorkflowInstance e where e.endDate is null and e.error is null and e.id not in :ids")
-                .parameter("ids", processingIds)
-                .view(View.MINIMAL)
+                .query("select e from wfstp$WorkflowInstance e where e.endDate is null and e.error is null and " +
+                        "e.nextWakeupAt <= :now and " +
+                        "(e.createTs > :createTs or (e.createTs = :createTs and e.id > :id)) " +
+                        "order by e.createTs, e.id")
+                .parameter("now", timeSource.currentTimestamp())
+                .parameter("createTs", lastCreateTs)
+                .parameter("id", lastId)
+                .maxResults(pageSize)
+                .view("workflowInstance-heartbeat")
+                .list();
+    }
+
+    /**
+     * Retrieve claimed by current node workflow instances ordered by creation time and ID
+     *
+     * @param ids claimed workflow instances IDs
+     */
+    protected List<WorkflowInstance> getClaimedWorkflowInstances(List<UUID> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return Collections.emptyList();
+        }
+        return dataManager.load(WorkflowInstance.class)
+                .query("select e from wfstp$WorkflowInstance e where e.id in :ids order by e.createTs, e.id")
+                .parameter("ids", ids)
+                .view("workflowInstance-heartbeat")
                 .list();
     }
 
@@ -1185,15 +2658,15 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
      * @param task performing task
      * @return can task be executed right now
      */
-    protected boolean isExecutable(WorkflowExecutionContext ctx, WorkflowInstanceTask task) {
-        Integer repeatSec = task.getStep().getRepeatSec();
-        if (repeatSec != null && repeatSec > 0) {
+    protected boolean isExecutable(WorkflowExecutionContext ctx, WorkflowInstanceTask task, int attempts) {
+        long delay = getRepeatDelayMs(task.getStep(), Math.max(1, attempts), false);
+        if (delay > 0) {
             String lastExecuteText = ctx.getParam(WorkflowConstants.REPEAT);
             if (!StringUtils.isEmpty(lastExecuteText)) {
                 long lastExecute = Long.valueOf(lastExecuteText);
                 long now = timeSource.currentTimeMillis();
                 long diff = now - lastExecute;
-                if (diff < (repeatSec * 1000)) {
+                if (diff < delay) {
                     return false;
                 }
             }
@@ -1201,6 +2674,121 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         return true;
     }
 
+    /**
+     * Calculate delay before the next repeat of step execution. Repeat interval is multiplied by the step multiplier
+     * for each next failed attempt, limited by the maximum delay and increased by random jitter.
+     *
+     * @param step     repeating step
+     * @param attempts count of failed attempts
+     * @param jitter   add random jitter or not, jitter only increases delay
+     * @return delay in milliseconds or zero if step is repeated on each heartbeat
+     */
+    protected long getRepeatDelayMs(Step step, int attempts, boolean jitter) {
+        Integer repeatSec = step.getRepeatSec();
+        if (repeatSec == null || repeatSec <= 0) {
+            return 0;
+        }
+        double delay = repeatSec * 1000d;
+        Double multiplier = step.getRetryMultiplier();
+        if (multiplier != null && multiplier > 1 && attempts > 1) {
+            delay *= Math.pow(multiplier, attempts - 1);
+        }
+        Integer maxDelaySec = step.getRetryMaxDelaySec();
+        double maxDelay = maxDelaySec != null && maxDelaySec > 0 ? maxDelaySec * 1000d : Long.MAX_VALUE;
+        delay = Math.min(delay, maxDelay);
+
+        Double jitterValue = step.getRetryJitter();
+        if (jitter && jitterValue != null && jitterValue > 0) {
+            delay = Math.min(maxDelay, delay + delay * jitterValue * ThreadLocalRandom.current().nextDouble());
+        }
+        return (long) delay;
+    }
+
+    /**
+     * Calculate time when waiting task should be checked again
+     *
+     * @param task       waiting task
+     * @param ctx        workflow instance execution context
+     * @param repeatable is task will be executed again
+     * @return next wakeup time or null if task is waiting only for users
+     */
+    @Nullable
+    protected Date getNextWakeup(WorkflowInstanceTask task, @Nullable WorkflowExecutionContext ctx, boolean repeatable) {
+        return getNextWakeup(task, ctx, repeatable, 1);
+    }
+
+    /**
+     * Calculate time when waiting task should be checked again
+     *
+     * @param task       waiting task
+     * @param ctx        workflow instance execution context
+     * @param repeatable is task will be executed again
+     * @param attempts   count of failed attempts of the task
+     * @return next wakeup time or null if task is waiting only for users
+     */
+    @Nullable
+    protected Date getNextWakeup(WorkflowInstanceTask task, @Nullable WorkflowExecutionContext ctx, boolean repeatable, int attempts) {
+        Long wakeup = null;
+
+        Integer timeoutSec = task.getStep().getTimeoutSec();
+        if (timeoutSec != null && timeoutSec > 0) {
+            wakeup = task.getStartDate().getTime() + timeoutSec * 1000L;
+        }
+        if (repeatable) {
+            long repeat = timeSource.currentTimeMillis();//without repeat interval task executed on each heartbeat
+            long delay = getRepeatDelayMs(task.getStep(), Math.max(1, attempts), true);
+            if (delay > 0 && ctx != null) {
+                String lastExecuteText = ctx.getParam(WorkflowConstants.REPEAT);
+                if (!StringUtils.isEmpty(lastExecuteText)) {
+                    repeat = Long.valueOf(lastExecuteText) + delay;
+                }
+            }
+            wakeup = wakeup == null ? repeat : Math.min(wakeup, repeat);
+        }
+        return wakeup == null ? null : new Date(wakeup);
+    }
+
+    /**
+     * Store time when workflow instance should be checked by heartbeat
+     */
+    protected void setNextWakeup(WorkflowInstance instance, @Nullable Date wakeup) throws WorkflowException {
+        try (Transaction tr = persistence.getTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            checkLease(instance);
+
+            instance = em.reloadNN(instance, View.LOCAL);
+
+            if (!Objects.equals(instance.getNextWakeupAt(), wakeup)) {
+                instance.setNextWakeupAt(wakeup);
+            }
+            storeExecutionContext(instance);
+
+            tr.commit();
+        }
+        timer.schedule(instance.getId(), wakeup);
+    }
+
+    /**
+     * Store count of failed attempts of the current task and time of the next attempt.
+     * Stalled instance has no next attempt and it's skipped by heartbeat until wakeup.
+     */
+    protected void setAttempts(WorkflowInstance instance, int attempts, @Nullable Date wakeup, boolean stalled) throws WorkflowException {
+        try (Transaction tr = persistence.getTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            checkLease(instance);
+
+            instance = em.reloadNN(instance, View.LOCAL);
+
+            instance.setAttempts(attempts);
+            instance.setStalled(stalled ? Boolean.TRUE : null);
+            instance.setNextWakeupAt(wakeup);
+            storeExecutionContext(instance);
+
+            tr.commit();
+        }
+        timer.schedule(instance.getId(), wakeup);
+    }
+
     protected boolean attach(WorkflowInstance instance) {
         ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
         writeLock.lock();
@@ -1210,15 +2798,90 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
                 return true;
             }
 
-            if (processingThread == null || !processingThread.isAlive()) {
-                processingInstances.put(instance.getId(), Thread.currentThread());
-                return true;
+            if ((processingThread != null && processingThread.isAlive()) || orphanedStages.containsKey(instance.getId())) {
+                metrics.increment(WorkflowMetricsRegistry.LOCK_CONTENTION, "local");
+                return false;
             }
+            processingInstances.put(instance.getId(), Thread.currentThread());
+            processingSince.put(instance.getId(), System.currentTimeMillis());
+        } finally {
+            writeLock.unlock();
+        }
 
-            return false;
+        if (leaseManager.isEnabled()) {
+            boolean leased;
+            try {
+                leased = leaseManager.acquire(instance.getId(), false);
+            } catch (RuntimeException e) {
+                log.error(String.format("Failed to acquire lease of workflow instance %s(%s)", instance, instance.getId()), e);
+                leased = false;
+            }
+            if (!leased) {
+                metrics.increment(WorkflowMetricsRegistry.LOCK_CONTENTION, "lease");
+                writeLock.lock();
+                try {
+                    if (processingInstances.remove(instance.getId(), Thread.currentThread())) {
+                        processingSince.remove(instance.getId());
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected boolean isAttached(WorkflowInstance instance) {
+        ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            Thread processingThread = processingInstances.get(instance.getId());
+            return (processingThread != null && processingThread.isAlive()) || orphanedStages.containsKey(instance.getId());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    protected boolean isAttachedByCurrentThread(WorkflowInstance instance) {
+        ReentrantReadWriteLock.ReadLock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return Objects.equals(processingInstances.get(instance.getId()), Thread.currentThread());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Release lease claimed by heartbeat if the instance is not processing by any local thread.
+     * Processing thread releases the lease itself on detach, timed out stage logic - when it's finished.
+     */
+    protected void releaseClaimedLease(UUID instanceId) {
+        ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Thread processingThread = processingInstances.get(instanceId);
+            if ((processingThread != null && processingThread.isAlive()) || orphanedStages.containsKey(instanceId)) {
+                return;
+            }
+            //reserve the instance while releasing, so nobody could attach it and lose the acquired lease
+            processingInstances.put(instanceId, Thread.currentThread());
         } finally {
             writeLock.unlock();
         }
+        try {
+            leaseManager.release(instanceId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release lease of workflow instance {}, it will expire later", instanceId);
+        } finally {
+            writeLock.lock();
+            try {
+                processingInstances.remove(instanceId, Thread.currentThread());
+            } finally {
+                writeLock.unlock();
+            }
+        }
     }
 
     protected void forceAttach(WorkflowInstance instance) {
@@ -1226,20 +2889,55 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         writeLock.lock();
         try {
             processingInstances.put(instance.getId(), Thread.currentThread());
+            processingSince.put(instance.getId(), System.currentTimeMillis());
             //TODO in perfect world need to intermediately stop execution of another thread
         } finally {
             writeLock.unlock();
         }
+
+        if (leaseManager.isEnabled()) {
+            //another node will lose the lease and fail on the next fencing check
+            leaseManager.acquire(instance.getId(), true);
+        }
     }
 
     protected void detach(WorkflowInstance instance) {
         ReentrantReadWriteLock.WriteLock writeLock = lock.writeLock();
         writeLock.lock();
         try {
-            processingInstances.remove(instance.getId());
+            //instance could be already detached or taken by another thread
+            if (!processingInstances.remove(instance.getId(), Thread.currentThread())) {
+                return;
+            }
+            processingSince.remove(instance.getId());
+            if (orphanedStages.containsKey(instance.getId())) {
+                //lease will be released when timed out stage logic is finished
+                return;
+            }
         } finally {
             writeLock.unlock();
         }
+
+        if (leaseManager.isEnabled()) {
+            try {
+                leaseManager.release(instance.getId());
+            } catch (RuntimeException e) {
+                log.warn("Failed to release lease of workflow instance {}({}), it will expire later", instance, instance.getId());
+            }
+        }
+    }
+
+    /**
+     * Fencing check, must be called inside of the transaction which is changing workflow instance state.
+     * Only thread which is processing the instance is checked, other callers do not hold the lease.
+     *
+     * @throws WorkflowException if current node doesn't hold the instance lease anymore
+     */
+    protected void checkLease(WorkflowInstance instance) throws WorkflowException {
+        if (leaseManager.isEnabled() && isAttachedByCurrentThread(instance) && !leaseManager.isValid(instance.getId())) {
+            log.warn("Lease of workflow instance {}({}) was lost", instance, instance.getId());
+            throw new WorkflowException(getMessage("WorkflowWorkerBean.leaseLost"));
+        }
     }
 
     /**
@@ -1253,8 +2951,15 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
         return entity;
     }
 
-    protected String prepareScript(String script) {
-        return sugar.prepareScript(script);
+    /**
+     * @return workflow name of the instance to tag metrics or null if workflow is not loaded
+     */
+    @Nullable
+    protected String getMetricTag(WorkflowInstance instance) {
+        if (PersistenceHelper.isLoaded(instance, "workflow") && instance.getWorkflow() != null) {
+            return instance.getWorkflow().getName();
+        }
+        return null;
     }
 
     /**
@@ -1262,22 +2967,7 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
      */
     @Nullable
     protected Object parseEntityId(MetaClass metaClass, String entityId) {
-        if (!StringUtils.isEmpty(entityId)) {
-            MetaProperty idProperty = metaClass.getPropertyNN("id");
-            Class idClass = idProperty.getJavaType();
-            if (UUID.class.isAssignableFrom(idClass)) {
-                return UuidProvider.fromString(entityId);
-            } else if (Integer.class.isAssignableFrom(idClass)) {
-                return Integer.valueOf(entityId);
-            } else if (Long.class.isAssignableFrom(idClass)) {
-                return Long.valueOf(entityId);
-            } else if (String.class.isAssignableFrom(idClass)) {
-                return entityId;
-            } else {
-                throw new UnsupportedOperationException(String.format("Unknown entity '%s' id type '%s'", metaClass.getName(), entityId));
-            }
-        }
-        return null;
+        return entityPrefetcher.parseEntityId(metaClass, entityId);
     }
 
     protected void fireEvent(WorkflowEntity entity, @Nullable String previousStep) {
@@ -1289,4 +2979,165 @@ public class WorkflowWorkerBean extends MessageableBean implements WorkflowWorke
             events.publish(event);
         }
     }
+
+    /**
+     * Per thread cache of workflow instances execution contexts with tracking of changed parameters
+     */
+    protected static class ContextSession {
+        private final Map<UUID, WorkflowExecutionContext> contexts = new LinkedHashMap<>();
+        private final Map<UUID, Set<String>> dirty = new HashMap<>();
+
+        public Set<UUID> getInstances() {
+            return new LinkedHashSet<>(contexts.keySet());
+        }
+
+        public void prime(UUID instanceId, Supplier<WorkflowExecutionContext> loader) {
+            if (!contexts.containsKey(instanceId)) {
+                contexts.put(instanceId, loader.get());
+            }
+        }
+
+        /**
+         * @return copy of the execution context, changes are not tracked until it will be set back
+         */
+        public WorkflowExecutionContext get(UUID instanceId, Supplier<WorkflowExecutionContext> loader) {
+            prime(instanceId, loader);
+            return copy(contexts.get(instanceId));
+        }
+
+        public void set(UUID instanceId, @Nullable WorkflowExecutionContext context, Supplier<WorkflowExecutionContext> loader) {
+            prime(instanceId, loader);
+
+            Map<String, String> previous = contexts.get(instanceId).getParams();
+            Map<String, String> current = context == null ? Collections.emptyMap() : context.getParams();
+
+            Set<String> changed = dirty.computeIfAbsent(instanceId, k -> new HashSet<>());
+            Set<String> keys = new HashSet<>(previous.keySet());
+            keys.addAll(current.keySet());
+            for (String key : keys) {
+                if (previous.containsKey(key) != current.containsKey(key) || !Objects.equals(previous.get(key), current.get(key))) {
+                    changed.add(key);
+                }
+            }
+            contexts.put(instanceId, context == null ? new WorkflowExecutionContext() : copy(context));
+        }
+
+        public boolean isDirty(UUID instanceId) {
+            Set<String> changed = dirty.get(instanceId);
+            return changed != null && !changed.isEmpty();
+        }
+
+        /**
+         * Apply changed parameters to the actual context and reset changes
+         *
+         * @return merged context
+         */
+        public WorkflowExecutionContext merge(UUID instanceId, WorkflowExecutionContext actual) {
+            WorkflowExecutionContext context = contexts.get(instanceId);
+            Set<String> changed = dirty.remove(instanceId);
+            if (context != null && changed != null) {
+                for (String key : changed) {
+                    if (context.getParams().containsKey(key)) {
+                        actual.putParam(key, context.getParam(key));
+                    } else {
+                        actual.getParams().remove(key);
+                    }
+                }
+            }
+            contexts.put(instanceId, copy(actual));
+            return actual;
+        }
+
+        /**
+         * @return independent copy of the session
+         */
+        public ContextSession copy() {
+            ContextSession copy = new ContextSession();
+            for (Map.Entry<UUID, WorkflowExecutionContext> entry : contexts.entrySet()) {
+                copy.contexts.put(entry.getKey(), copy(entry.getValue()));
+            }
+            for (Map.Entry<UUID, Set<String>> entry : dirty.entrySet()) {
+                copy.dirty.put(entry.getKey(), new HashSet<>(entry.getValue()));
+            }
+            return copy;
+        }
+
+        /**
+         * Replace state of the session by state of another session
+         */
+        public void adopt(ContextSession session) {
+            contexts.clear();
+            contexts.putAll(session.contexts);
+            dirty.clear();
+            dirty.putAll(session.dirty);
+        }
+
+        public static WorkflowExecutionContext copy(WorkflowExecutionContext context) {
+            WorkflowExecutionContext copy = new WorkflowExecutionContext();
+            copy.getParams().putAll(context.getParams());
+            return copy;
+        }
+    }
+
+    /**
+     * Execution of stage logic in the stage thread
+     */
+    protected static class StageRun {
+        /**
+         * Guarded by the processing instances lock
+         */
+        private boolean finished;
+    }
+
+    /**
+     * Paused workflows IDs together with configuration text they were parsed from
+     */
+    protected static class PausedWorkflows {
+        private final String text;
+        private final Set<UUID> ids;
+
+        public PausedWorkflows(String text, Set<UUID> ids) {
+            this.text = text;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * Tracker of instances dispatched by one heartbeat tick
+     */
+    protected static class HeartbeatTick {
+        private int pending = 0;
+
+        public synchronized void started() {
+            pending++;
+        }
+
+        public synchronized void finished() {
+            pending--;
+            if (pending <= 0) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Wait until all dispatched instances are processed
+         *
+         * @param deadline waiting deadline time or zero to wait infinitely
+         * @return false if deadline elapsed
+         */
+        public synchronized boolean await(long deadline) throws InterruptedException {
+            while (pending > 0) {
+                if (deadline > 0) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) {
+                        return false;
+                    }
+                    wait(left);
+                } else {
+                    wait();
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package com.groupstp.workflowstp.core.codec;
+
+import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+
+/**
+ * Encoder and decoder of workflow instance execution context stored in the database.
+ * Implementations must be Spring beans, they are picked up by {@link ContextCodecManager}.
+ *
+ * @author adiatullin
+ */
+public interface ContextCodec {
+
+    /**
+     * @return unique codec name which is used in <p>workflow.contextCodec</p> property
+     */
+    String getName();
+
+    /**
+     * Check whether provided stored text was produced by this codec
+     *
+     * @param text stored not empty context text
+     * @return true if codec can decode the text
+     */
+    boolean canDecode(String text);
+
+    /**
+     * @param context execution context
+     * @return text for storing in the database
+     */
+    String encode(WorkflowExecutionContext context);
+
+    /**
+     * @param text stored context text
+     * @return execution context
+     */
+    WorkflowExecutionContext decode(String text);
+}
@@ -0,0 +1,65 @@
+package com.groupstp.workflowstp.core.codec;
+
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Helper bean which encodes execution contexts by configured codec and decodes stored contexts by any suitable codec.
+ * Contexts stored by another codec are transparently converted on the next write.
+ *
+ * @author adiatullin
+ */
+@Component(ContextCodecManager.NAME)
+public class ContextCodecManager {
+    public static final String NAME = "wfstp_ContextCodecManager";
+
+    @Inject
+    protected List<ContextCodec> codecs;
+
+    @Inject
+    protected WorkflowConfig config;
+
+    /**
+     * Encode execution context by configured codec
+     *
+     * @param context execution context
+     * @return text for storing in the database
+     */
+    public String encode(WorkflowExecutionContext context) {
+        return getCodec().encode(context);
+    }
+
+    /**
+     * Decode stored execution context
+     *
+     * @param text stored context text
+     * @return execution context, empty if text is empty
+     */
+    public WorkflowExecutionContext decode(@Nullable String text) {
+        if (StringUtils.isEmpty(text)) {
+            return new WorkflowExecutionContext();
+        }
+        for (ContextCodec codec : codecs) {
+            if (codec.canDecode(text)) {
+                return codec.decode(text);
+            }
+        }
+        throw new RuntimeException("Unknown workflow execution context format");
+    }
+
+    protected ContextCodec getCodec() {
+        String name = config.getContextCodec();
+        for (ContextCodec codec : codecs) {
+            if (codec.getName().equals(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalStateException(String.format("Workflow execution context codec '%s' not found", name));
+    }
+}
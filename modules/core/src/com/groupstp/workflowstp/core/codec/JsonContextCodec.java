@@ -0,0 +1,58 @@
+package com.groupstp.workflowstp.core.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Default codec which stores execution context as json text
+ *
+ * @author adiatullin
+ */
+@Component(JsonContextCodec.NAME)
+public class JsonContextCodec implements ContextCodec {
+    public static final String NAME = "wfstp_JsonContextCodec";
+
+    public static final String CODEC_NAME = "json";
+
+    protected final ObjectReader reader;
+    protected final ObjectWriter writer;
+
+    public JsonContextCodec() {
+        ObjectMapper mapper = new ObjectMapper();
+        reader = mapper.readerFor(WorkflowExecutionContext.class);
+        writer = mapper.writerFor(WorkflowExecutionContext.class);
+    }
+
+    @Override
+    public String getName() {
+        return CODEC_NAME;
+    }
+
+    @Override
+    public boolean canDecode(String text) {
+        return text.startsWith("{");
+    }
+
+    @Override
+    public String encode(WorkflowExecutionContext context) {
+        try {
+            return writer.writeValueAsString(context);
+        } catch (IOException e) {
+            throw new RuntimeException("JSON serialization failed", e);
+        }
+    }
+
+    @Override
+    public WorkflowExecutionContext decode(String text) {
+        try {
+            return reader.readValue(text);
+        } catch (IOException e) {
+            throw new RuntimeException("JSON deserialization failed", e);
+        }
+    }
+}
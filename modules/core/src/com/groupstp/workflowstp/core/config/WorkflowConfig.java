@@ -6,6 +6,7 @@ import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
 import com.haulmont.cuba.core.config.defaults.DefaultInteger;
+import com.haulmont.cuba.core.config.defaults.DefaultString;
 
 /**
  * Workflow functional configuration
@@ -35,4 +36,253 @@ public interface WorkflowConfig extends Config {
 
     void setDelayCallCount(Integer value);
 
+    /**
+     * Should workflow continuations (start, task finishing, restart, movement and etc.) be performed
+     * asynchronously in the engine executor instead of the calling thread
+     */
+    @Property("workflow.asyncEnable")
+    @DefaultBoolean(false)
+    Boolean getAsyncEnable();
+
+    void setAsyncEnable(Boolean value);
+
+    /**
+     * @return count of the engine executor threads
+     */
+    @Property("workflow.asyncThreadCount")
+    @DefaultInteger(4)
+    Integer getAsyncThreadCount();
+
+    void setAsyncThreadCount(Integer value);
+
+    /**
+     * @return maximum count of waiting continuations in the engine executor queue.
+     * If queue is full continuation will be performed in the calling thread.
+     */
+    @Property("workflow.asyncQueueSize")
+    @DefaultInteger(1000)
+    Integer getAsyncQueueSize();
+
+    void setAsyncQueueSize(Integer value);
+
+    /**
+     * @return count of not finished workflow instances loaded by heartbeat per one page
+     */
+    @Property("workflow.heartbeatBatchSize")
+    @DefaultInteger(100)
+    Integer getHeartbeatBatchSize();
+
+    void setHeartbeatBatchSize(Integer value);
+
+    /**
+     * Maximum count of workflow instances processed by one heartbeat tick.
+     * Next tick continues from the place where previous one stopped.
+     * <br> Zero or negative value means no limits.
+     */
+    @Property("workflow.heartbeatMaxInstances")
+    @DefaultInteger(0)
+    Integer getHeartbeatMaxInstances();
+
+    void setHeartbeatMaxInstances(Integer value);
+
+    /**
+     * @return count of heartbeat worker threads. Each workflow instance always processed by the same thread.
+     */
+    @Property("workflow.heartbeatThreadCount")
+    @DefaultInteger(4)
+    Integer getHeartbeatThreadCount();
+
+    void setHeartbeatThreadCount(Integer value);
+
+    /**
+     * @return maximum count of waiting workflow instances per one heartbeat worker thread
+     */
+    @Property("workflow.heartbeatQueueSize")
+    @DefaultInteger(100)
+    Integer getHeartbeatQueueSize();
+
+    void setHeartbeatQueueSize(Integer value);
+
+    /**
+     * Heartbeat tick deadline in seconds. When elapsed tick stops dispatching of new instances
+     * and next tick continues from the place where this one stopped.
+     * <br> Zero or negative value means no limits.
+     */
+    @Property("workflow.heartbeatTimeoutSec")
+    @DefaultInteger(0)
+    Integer getHeartbeatTimeoutSec();
+
+    void setHeartbeatTimeoutSec(Integer value);
+
+    /**
+     * @return is cluster-safe leasing of workflow instances in the database enabled.
+     * Should be enabled when several middleware nodes are processing workflows.
+     */
+    @Property("workflow.leaseEnable")
+    @DefaultBoolean(false)
+    Boolean getLeaseEnable();
+
+    void setLeaseEnable(Boolean value);
+
+    /**
+     * @return time in seconds after which not renewed lease of workflow instance can be taken by another node
+     */
+    @Property("workflow.leaseTimeoutSec")
+    @DefaultInteger(600)
+    Integer getLeaseTimeoutSec();
+
+    void setLeaseTimeoutSec(Integer value);
+
+    /**
+     * @return is in-process timer enabled. Timer wakes up workflow instances exactly when step timeout or repeat time comes,
+     * so heartbeat can be performed much rarely as a safety net.
+     */
+    @Property("workflow.timerEnable")
+    @DefaultBoolean(false)
+    Boolean getTimerEnable();
+
+    void setTimerEnable(Boolean value);
+
+    /**
+     * @return timer horizon in seconds. Only wakeups inside of the horizon are kept in memory,
+     * later ones are loaded by heartbeat. Should be greater than heartbeat interval.
+     */
+    @Property("workflow.timerHorizonSec")
+    @DefaultInteger(3600)
+    Integer getTimerHorizonSec();
+
+    void setTimerHorizonSec(Integer value);
+
+    /**
+     * @return maximum count of wakeups loaded into the timer by one reloading, the nearest wakeups are loaded first
+     */
+    @Property("workflow.timerReloadLimit")
+    @DefaultInteger(10000)
+    Integer getTimerReloadLimit();
+
+    void setTimerReloadLimit(Integer value);
+
+    /**
+     * @return maximum count of compiled workflow scripts kept in memory
+     */
+    @Property("workflow.scriptCacheSize")
+    @DefaultInteger(1000)
+    Integer getScriptCacheSize();
+
+    void setScriptCacheSize(Integer value);
+
+    /**
+     * @return name of the codec which is used to store workflow execution contexts: <p>json</p> or <p>smile</p>.
+     * Contexts stored by another codec are still readable and converted on the next write.
+     */
+    @Property("workflow.contextCodec")
+    @DefaultString("json")
+    String getContextCodec();
+
+    void setContextCodec(String value);
+
+    /**
+     * @return count of workflow tasks which are completed in one transaction by batch processing
+     */
+    @Property("workflow.batchChunkSize")
+    @DefaultInteger(50)
+    Integer getBatchChunkSize();
+
+    void setBatchChunkSize(Integer value);
+
+    /**
+     * @return maximum time in seconds to wait continuation of workflow instances after batch tasks completion.
+     * Not used if asynchronous mode enabled.
+     */
+    @Property("workflow.batchTimeoutSec")
+    @DefaultInteger(600)
+    Integer getBatchTimeoutSec();
+
+    void setBatchTimeoutSec(Integer value);
+
+    /**
+     * @return count of workflow entities which are started in one transaction by batch starting
+     */
+    @Property("workflow.startBatchSize")
+    @DefaultInteger(500)
+    Integer getStartBatchSize();
+
+    void setStartBatchSize(Integer value);
+
+    /**
+     * @return is batch starting creates workflow instances by direct database inserts. It's faster but entity listeners
+     * are not invoked, so entities with registered listeners are always started one by one
+     */
+    @Property("workflow.startBatchInsertEnable")
+    @DefaultBoolean(false)
+    Boolean getStartBatchInsertEnable();
+
+    void setStartBatchInsertEnable(Boolean value);
+
+    /**
+     * @return is moving of finished workflow instances into the archive tables enabled
+     */
+    @Property("workflow.archiveEnable")
+    @DefaultBoolean(false)
+    Boolean getArchiveEnable();
+
+    void setArchiveEnable(Boolean value);
+
+    /**
+     * @return count of days after workflow instance finishing when it is moved into the archive
+     */
+    @Property("workflow.archiveAfterDays")
+    @DefaultInteger(90)
+    Integer getArchiveAfterDays();
+
+    void setArchiveAfterDays(Integer value);
+
+    /**
+     * @return count of days after workflow instance finishing when it is removed from the archive.
+     * Zero or negative value means archived instances are kept forever.
+     */
+    @Property("workflow.purgeAfterDays")
+    @DefaultInteger(0)
+    Integer getPurgeAfterDays();
+
+    void setPurgeAfterDays(Integer value);
+
+    /**
+     * @return count of workflow instances which are archived or purged in one transaction
+     */
+    @Property("workflow.archiveChunkSize")
+    @DefaultInteger(500)
+    Integer getArchiveChunkSize();
+
+    void setArchiveChunkSize(Integer value);
+
+    /**
+     * @return comma separated IDs of paused workflows. Instances of paused workflows are not processed until resume.
+     */
+    @Property("workflow.pausedWorkflows")
+    @DefaultString("")
+    String getPausedWorkflows();
+
+    void setPausedWorkflows(String value);
+
+    /**
+     * Default maximum execution time of algorithm stages groovy script or delegate, used if it's not specified in the stage.
+     * <br> Zero or negative value means no limits.
+     */
+    @Property("workflow.stageExecutionTimeoutSec")
+    @DefaultInteger(0)
+    Integer getStageExecutionTimeoutSec();
+
+    void setStageExecutionTimeoutSec(Integer value);
+
+    /**
+     * @return maximum count of threads executing time limited algorithm stages.
+     * Executions which are not fit into the pool are deferred.
+     */
+    @Property("workflow.stageThreadCount")
+    @DefaultInteger(20)
+    Integer getStageThreadCount();
+
+    void setStageThreadCount(Integer value);
+
 }
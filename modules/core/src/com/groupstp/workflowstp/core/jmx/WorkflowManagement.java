@@ -0,0 +1,247 @@
+package com.groupstp.workflowstp.core.jmx;
+
+import com.groupstp.workflowstp.core.bean.WorkflowExecutor;
+import com.groupstp.workflowstp.core.bean.WorkflowWorker;
+import com.groupstp.workflowstp.core.config.WorkflowConfig;
+import com.groupstp.workflowstp.dto.WorkflowProcessingInstance;
+import com.groupstp.workflowstp.entity.Workflow;
+import com.groupstp.workflowstp.entity.WorkflowInstance;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.UuidProvider;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.security.app.Authenticated;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.exception.ExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Workflow engine management JMX bean
+ *
+ * @author adiatullin
+ */
+@Component("wfstp_WorkflowManagementMBean")
+public class WorkflowManagement implements WorkflowManagementMBean {
+
+    @Inject
+    protected WorkflowWorker worker;
+    @Inject
+    protected WorkflowExecutor executor;
+    @Inject
+    protected DataManager dataManager;
+
+    @Inject
+    protected WorkflowConfig config;
+
+    @Override
+    public boolean getHeartbeatEnable() {
+        return Boolean.TRUE.equals(config.getHeartbeatEnable());
+    }
+
+    @Authenticated
+    @Override
+    public void setHeartbeatEnable(boolean value) {
+        config.setHeartbeatEnable(value);
+    }
+
+    @Override
+    public int getHeartbeatBatchSize() {
+        return config.getHeartbeatBatchSize();
+    }
+
+    @Authenticated
+    @Override
+    public void setHeartbeatBatchSize(int value) {
+        config.setHeartbeatBatchSize(Math.max(1, value));
+    }
+
+    @Override
+    public int getHeartbeatMaxInstances() {
+        return config.getHeartbeatMaxInstances() == null ? 0 : config.getHeartbeatMaxInstances();
+    }
+
+    @Authenticated
+    @Override
+    public void setHeartbeatMaxInstances(int value) {
+        config.setHeartbeatMaxInstances(value);
+    }
+
+    @Override
+    public int getHeartbeatThreadCount() {
+        return config.getHeartbeatThreadCount();
+    }
+
+    @Authenticated
+    @Override
+    public void setHeartbeatThreadCount(int value) {
+        worker.setHeartbeatThreadCount(value);
+    }
+
+    @Override
+    public int getAsyncThreadCount() {
+        return config.getAsyncThreadCount();
+    }
+
+    @Authenticated
+    @Override
+    public void setAsyncThreadCount(int value) {
+        executor.setThreadCount(value);
+    }
+
+    @Override
+    public int getProcessingCount() {
+        return worker.getProcessingInstances().size();
+    }
+
+    @Override
+    public String printProcessingInstances() {
+        List<WorkflowProcessingInstance> instances = worker.getProcessingInstances();
+        if (instances.isEmpty()) {
+            return "No processing workflow instances";
+        }
+        return instances.stream()
+                .map(WorkflowProcessingInstance::toString)
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    public String releaseProcessingInstance(String instanceId) {
+        UUID id;
+        try {
+            id = UuidProvider.fromString(StringUtils.trimToEmpty(instanceId));
+        } catch (IllegalArgumentException e) {
+            return "Wrong workflow instance ID " + instanceId;
+        }
+        return worker.releaseProcessingInstance(id) ?
+                String.format("Workflow instance %s released", id) :
+                String.format("Workflow instance %s is not processing by current node", id);
+    }
+
+    @Authenticated
+    @Override
+    public String printStalledInstances() {
+        List<WorkflowInstance> instances = dataManager.load(WorkflowInstance.class)
+                .query("select e from wfstp$WorkflowInstance e where e.stalled = true and e.endDate is null order by e.createTs")
+                .view("workflowInstance-heartbeat")
+                .list();
+        if (instances.isEmpty()) {
+            return "No stalled workflow instances";
+        }
+        return instances.stream()
+                .map(e -> String.format("%s (%s)", e.getId(), e.getWorkflow() == null ? null : e.getWorkflow().getName()))
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Authenticated
+    @Override
+    public String wakeupStalledInstance(String instanceId) {
+        UUID id;
+        try {
+            id = UuidProvider.fromString(StringUtils.trimToEmpty(instanceId));
+        } catch (IllegalArgumentException e) {
+            return "Wrong workflow instance ID " + instanceId;
+        }
+        WorkflowInstance instance = dataManager.load(WorkflowInstance.class)
+                .id(id)
+                .view(View.MINIMAL)
+                .optional()
+                .orElse(null);
+        if (instance == null) {
+            return String.format("Workflow instance %s not found", id);
+        }
+        try {
+            worker.wakeupWorkflow(instance);
+            return String.format("Workflow instance %s woken up", id);
+        } catch (Exception e) {
+            return ExceptionUtils.getFullStackTrace(e);
+        }
+    }
+
+    @Authenticated
+    @Override
+    public String performHeartbeat() {
+        if (!getHeartbeatEnable()) {
+            return "Workflow heartbeat is disabled";
+        }
+        try {
+            long start = System.currentTimeMillis();
+            worker.performWorkflowHeartbeat();
+            return String.format("Workflow heartbeat performed in %d ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            return ExceptionUtils.getFullStackTrace(e);
+        }
+    }
+
+    @Authenticated
+    @Override
+    public String printPausedWorkflows() {
+        Set<UUID> ids = worker.getPausedWorkflows();
+        if (ids.isEmpty()) {
+            return "No paused workflows";
+        }
+        Map<UUID, Workflow> workflows = dataManager.load(Workflow.class)
+                .query("select e from wfstp$Workflow e where e.id in :ids")
+                .parameter("ids", ids)
+                .view(View.MINIMAL)
+                .list()
+                .stream()
+                .collect(Collectors.toMap(Workflow::getId, e -> e));
+        return ids.stream()
+                .map(id -> workflows.containsKey(id) ? String.format("%s (%s)", workflows.get(id).getName(), id) : id.toString())
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Authenticated
+    @Override
+    public String pauseWorkflow(String workflow) {
+        return setPaused(workflow, true);
+    }
+
+    @Authenticated
+    @Override
+    public String resumeWorkflow(String workflow) {
+        return setPaused(workflow, false);
+    }
+
+    protected String setPaused(String workflow, boolean paused) {
+        List<Workflow> workflows = findWorkflows(workflow);
+        if (workflows.isEmpty()) {
+            return "Workflow not found: " + workflow;
+        }
+        for (Workflow item : workflows) {
+            worker.setPaused(item.getId(), paused);
+        }
+        return String.format("%s %s", workflows.stream()
+                        .map(item -> String.format("%s (%s)", item.getName(), item.getId()))
+                        .collect(Collectors.joining(", ")),
+                paused ? "paused" : "resumed");
+    }
+
+    /**
+     * Find workflows by ID or name
+     */
+    protected List<Workflow> findWorkflows(String workflow) {
+        String value = StringUtils.trimToEmpty(workflow);
+        if (value.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            UUID id = UuidProvider.fromString(value);
+            return dataManager.load(Workflow.class)
+                    .id(id)
+                    .view(View.MINIMAL)
+                    .optional()
+                    .map(Collections::singletonList)
+                    .orElse(Collections.emptyList());
+        } catch (IllegalArgumentException e) {
+            return dataManager.load(Workflow.class)
+                    .query("select e from wfstp$Workflow e where e.name = :name")
+                    .parameter("name", value)
+                    .view(View.MINIMAL)
+                    .list();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.groupstp.workflowstp.core.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * JMX interface of workflow engine management
+ *
+ * @author adiatullin
+ */
+@ManagedResource(description = "Workflow engine management")
+public interface WorkflowManagementMBean {
+
+    boolean getHeartbeatEnable();
+
+    void setHeartbeatEnable(boolean value);
+
+    int getHeartbeatBatchSize();
+
+    void setHeartbeatBatchSize(int value);
+
+    int getHeartbeatMaxInstances();
+
+    void setHeartbeatMaxInstances(int value);
+
+    int getHeartbeatThreadCount();
+
+    void setHeartbeatThreadCount(int value);
+
+    int getAsyncThreadCount();
+
+    void setAsyncThreadCount(int value);
+
+    /**
+     * @return count of workflow instances which are processing by current node right now
+     */
+    int getProcessingCount();
+
+    @ManagedOperation(description = "Print workflow instances which are processing by current node with processing thread and elapsed time")
+    String printProcessingInstances();
+
+    @ManagedOperation(description = "Force release workflow instance which is stuck in processing")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "instanceId", description = "Workflow instance ID")})
+    String releaseProcessingInstance(String instanceId);
+
+    @ManagedOperation(description = "Print workflow instances which are stalled after exceeding maximum repeat attempts")
+    String printStalledInstances();
+
+    @ManagedOperation(description = "Wake up stalled workflow instance and perform it's current step again")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "instanceId", description = "Workflow instance ID")})
+    String wakeupStalledInstance(String instanceId);
+
+    @ManagedOperation(description = "Perform workflow heartbeat immediately")
+    String performHeartbeat();
+
+    @ManagedOperation(description = "Print paused workflows")
+    String printPausedWorkflows();
+
+    @ManagedOperation(description = "Pause processing of all instances of the workflow")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "workflow", description = "Workflow ID or name")})
+    String pauseWorkflow(String workflow);
+
+    @ManagedOperation(description = "Resume processing of all instances of the workflow")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "workflow", description = "Workflow ID or name")})
+    String resumeWorkflow(String workflow);
+}
@@ -0,0 +1,70 @@
+package com.groupstp.workflowstp.core.jmx;
+
+import com.groupstp.workflowstp.core.bean.WorkflowMetricsRegistry;
+import com.groupstp.workflowstp.dto.WorkflowMetric;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Workflow engine metrics JMX bean
+ *
+ * @author adiatullin
+ */
+@Component("wfstp_WorkflowMetricsMBean")
+public class WorkflowMetrics implements WorkflowMetricsMBean {
+
+    @Inject
+    protected WorkflowMetricsRegistry registry;
+
+    @Override
+    public long getIterationsCount() {
+        return sum(WorkflowMetricsRegistry.ITERATE, WorkflowMetric::getCount);
+    }
+
+    @Override
+    public long getFailuresCount() {
+        return sum(WorkflowMetricsRegistry.FAILURES, metric -> (long) metric.getValue());
+    }
+
+    @Override
+    public long getLockContentionCount() {
+        return sum(WorkflowMetricsRegistry.LOCK_CONTENTION, metric -> (long) metric.getValue());
+    }
+
+    @Override
+    public long getHeartbeatMaxDurationMs() {
+        return registry.getMetrics().stream()
+                .filter(metric -> WorkflowMetricsRegistry.HEARTBEAT_DURATION.equals(metric.getName()))
+                .mapToLong(WorkflowMetric::getMax)
+                .max()
+                .orElse(0);
+    }
+
+    @Override
+    public String printMetrics() {
+        List<WorkflowMetric> metrics = registry.getMetrics();
+        if (metrics.isEmpty()) {
+            return "No metrics recorded";
+        }
+        return metrics.stream()
+                .map(WorkflowMetric::toString)
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    public String resetMetrics() {
+        registry.reset();
+        return "Metrics reset";
+    }
+
+    protected long sum(String name, ToLongFunction<WorkflowMetric> value) {
+        return registry.getMetrics().stream()
+                .filter(metric -> name.equals(metric.getName()))
+                .mapToLong(value)
+                .sum();
+    }
+}
@@ -0,0 +1,39 @@
+package com.groupstp.workflowstp.core.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * JMX interface of workflow engine metrics
+ *
+ * @author adiatullin
+ */
+@ManagedResource(description = "Workflow engine metrics")
+public interface WorkflowMetricsMBean {
+
+    /**
+     * @return count of workflow instances iterations
+     */
+    long getIterationsCount();
+
+    /**
+     * @return count of failed workflow instances
+     */
+    long getFailuresCount();
+
+    /**
+     * @return count of lock contentions on workflow instances
+     */
+    long getLockContentionCount();
+
+    /**
+     * @return maximum heartbeat duration in milliseconds since metrics reset
+     */
+    long getHeartbeatMaxDurationMs();
+
+    @ManagedOperation(description = "Print all workflow engine metrics")
+    String printMetrics();
+
+    @ManagedOperation(description = "Reset workflow engine counters and histograms")
+    String resetMetrics();
+}
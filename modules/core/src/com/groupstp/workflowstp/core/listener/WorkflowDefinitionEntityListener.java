@@ -0,0 +1,58 @@
+package com.groupstp.workflowstp.core.listener;
+
+import com.groupstp.workflowstp.event.WorkflowDefinitionChangedEvent;
+import com.haulmont.cuba.core.entity.StandardEntity;
+import com.haulmont.cuba.core.global.Events;
+import com.haulmont.cuba.core.listener.AfterDeleteEntityListener;
+import com.haulmont.cuba.core.listener.AfterInsertEntityListener;
+import com.haulmont.cuba.core.listener.AfterUpdateEntityListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+
+/**
+ * Entity listener which notifies workflow caches about changes of workflow definition entities
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowDefinitionEntityListener.NAME)
+public class WorkflowDefinitionEntityListener implements AfterInsertEntityListener<StandardEntity>,
+        AfterUpdateEntityListener<StandardEntity>, AfterDeleteEntityListener<StandardEntity> {
+    public static final String NAME = "wfstp_WorkflowDefinitionEntityListener";
+
+    @Inject
+    protected Events events;
+
+    @Override
+    public void onAfterInsert(StandardEntity entity, Connection connection) {
+        publish(entity);
+    }
+
+    @Override
+    public void onAfterUpdate(StandardEntity entity, Connection connection) {
+        publish(entity);
+    }
+
+    @Override
+    public void onAfterDelete(StandardEntity entity, Connection connection) {
+        publish(entity);
+    }
+
+    protected void publish(StandardEntity entity) {
+        WorkflowDefinitionChangedEvent event = new WorkflowDefinitionChangedEvent(entity.getMetaClass().getName(), entity.getId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            //caches must not be reloaded with not committed yet state
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    events.publish(event);
+                }
+            });
+        } else {
+            events.publish(event);
+        }
+    }
+}
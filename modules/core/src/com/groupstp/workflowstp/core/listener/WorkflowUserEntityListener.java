@@ -0,0 +1,49 @@
+package com.groupstp.workflowstp.core.listener;
+
+import com.groupstp.workflowstp.core.bean.WorkflowUserResolver;
+import com.haulmont.cuba.core.listener.AfterDeleteEntityListener;
+import com.haulmont.cuba.core.listener.AfterUpdateEntityListener;
+import com.haulmont.cuba.security.entity.User;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+
+/**
+ * Entity listener which notifies workflow users cache about changes of users
+ *
+ * @author adiatullin
+ */
+@Component(WorkflowUserEntityListener.NAME)
+public class WorkflowUserEntityListener implements AfterUpdateEntityListener<User>, AfterDeleteEntityListener<User> {
+    public static final String NAME = "wfstp_WorkflowUserEntityListener";
+
+    @Inject
+    protected WorkflowUserResolver userResolver;
+
+    @Override
+    public void onAfterUpdate(User entity, Connection connection) {
+        invalidate();
+    }
+
+    @Override
+    public void onAfterDelete(User entity, Connection connection) {
+        invalidate();
+    }
+
+    protected void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            //cache must not be reloaded with not committed yet state
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    userResolver.invalidateAll();
+                }
+            });
+        } else {
+            userResolver.invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.groupstp.workflowstp.core.util;
+
+import com.haulmont.bali.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor which is consist of several single thread partitions with bounded queues.
+ * Tasks with the same key always performed by the same partition, so they are never executed concurrently.
+ *
+ * @author adiatullin
+ */
+public class PartitionedExecutor {
+
+    private final List<ThreadPoolExecutor> partitions;
+
+    /**
+     * @param name       threads name prefix
+     * @param partitions count of partitions (threads)
+     * @param queueSize  maximum count of waiting tasks per partition
+     */
+    public PartitionedExecutor(String name, int partitions, int queueSize) {
+        Preconditions.checkNotNullArgument(name);
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        List<ThreadPoolExecutor> list = new ArrayList<>(partitions);
+        for (int i = 0; i < Math.max(1, partitions); i++) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueSize)), threadFactory);
+            //workers take tasks directly from the queue
+            executor.prestartAllCoreThreads();
+            list.add(executor);
+        }
+        this.partitions = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Enqueue task into the partition of provided key. If partition queue is full the caller will be blocked.
+     *
+     * @param key       partitioning key
+     * @param task      performing task
+     * @param timeoutMs maximum time to wait free place in the queue, zero or negative value means wait infinitely
+     * @return future of the enqueued task
+     * @throws RejectedExecutionException if timeout elapsed or executor is shut down
+     * @throws InterruptedException       if calling thread interrupted while waiting
+     */
+    public Future<?> submit(Object key, Runnable task, long timeoutMs) throws InterruptedException {
+        Preconditions.checkNotNullArgument(key);
+        Preconditions.checkNotNullArgument(task);
+
+        ThreadPoolExecutor executor = partitions.get(Math.floorMod(key.hashCode(), partitions.size()));
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+
+        FutureTask<?> future = new FutureTask<>(task, null);
+        if (timeoutMs > 0) {
+            if (!executor.getQueue().offer(future, timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Partition queue is full");
+            }
+        } else {
+            executor.getQueue().put(future);
+        }
+        return future;
+    }
+
+    /**
+     * @return count of partitions
+     */
+    public int getPartitionsCount() {
+        return partitions.size();
+    }
+
+    /**
+     * @return count of waiting tasks in all partitions
+     */
+    public int getQueueSize() {
+        int size = 0;
+        for (ThreadPoolExecutor executor : partitions) {
+            size += executor.getQueue().size();
+        }
+        return size;
+    }
+
+    /**
+     * @return count of currently performing tasks
+     */
+    public int getActiveCount() {
+        int count = 0;
+        for (ThreadPoolExecutor executor : partitions) {
+            count += executor.getActiveCount();
+        }
+        return count;
+    }
+
+    /**
+     * Stop accepting new tasks. Already enqueued tasks will be performed.
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor executor : partitions) {
+            executor.shutdown();
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.groupstp.workflowstp.service;
 
+import com.groupstp.workflowstp.core.bean.WorkflowMetricsRegistry;
 import com.groupstp.workflowstp.core.bean.WorkflowWorker;
 import com.groupstp.workflowstp.entity.*;
 import com.groupstp.workflowstp.exception.WorkflowException;
+import com.groupstp.workflowstp.dto.WorkflowBatchResult;
 import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import com.groupstp.workflowstp.dto.WorkflowMetric;
+import com.groupstp.workflowstp.dto.WorkflowStageAccess;
+import com.groupstp.workflowstp.dto.WorkflowStartResult;
 import com.haulmont.cuba.core.global.AppBeans;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.UUID;
@@ -23,6 +30,8 @@ public class WorkflowServiceBean implements WorkflowService {
 
     @Inject
     private WorkflowWorker worker;
+    @Inject
+    private WorkflowMetricsRegistry metrics;
 
     @Override
     public Workflow determinateWorkflow(WorkflowEntity entity) throws WorkflowException {
@@ -47,6 +56,11 @@ public class WorkflowServiceBean implements WorkflowService {
         return worker.startWorkflow(entity, wf);
     }
 
+    @Override
+    public WorkflowStartResult startWorkflows(Collection<? extends WorkflowEntity> entities) {
+        return worker.startWorkflows(entities, null);
+    }
+
     @Override
     public void restartWorkflow(WorkflowInstance instance) throws WorkflowException {
         worker.restartWorkflow(instance);
@@ -67,6 +81,16 @@ public class WorkflowServiceBean implements WorkflowService {
         worker.moveWorkflow(instance, step);
     }
 
+    @Override
+    public void wakeupWorkflow(WorkflowInstance instance) throws WorkflowException {
+        worker.wakeupWorkflow(instance);
+    }
+
+    @Override
+    public boolean await(WorkflowInstance instance, long timeoutMs) {
+        return worker.await(instance, timeoutMs);
+    }
+
     @Override
     public boolean isProcessing(WorkflowEntity entity) {
         return worker.isProcessing(entity);
@@ -113,6 +137,16 @@ public class WorkflowServiceBean implements WorkflowService {
         return worker.getStage(entity);
     }
 
+    @Override
+    public WorkflowStageAccess getStageAccess(Stage stage) {
+        return worker.getStageAccess(stage);
+    }
+
+    @Override
+    public List<WorkflowInstanceTask> getWorkflowInstanceTasks(Collection<? extends WorkflowEntity> entities, Stage stage) {
+        return worker.getWorkflowInstanceTasks(entities, stage);
+    }
+
     @Override
     public void finishTask(WorkflowInstanceTask task, String... performersLogin) throws WorkflowException {
         worker.finishTask(task, performersLogin);
@@ -123,6 +157,11 @@ public class WorkflowServiceBean implements WorkflowService {
         worker.finishTask(task, params, performersLogin);
     }
 
+    @Override
+    public WorkflowBatchResult finishTasks(Collection<WorkflowInstanceTask> tasks, @Nullable Map<String, String> params, String... performersLogin) {
+        return worker.finishTasks(tasks, params, performersLogin);
+    }
+
     @Override
     public WorkflowExecutionContext getExecutionContext(WorkflowInstance instance) {
         return worker.getExecutionContext(instance);
@@ -143,4 +182,9 @@ public class WorkflowServiceBean implements WorkflowService {
     public void setParameter(WorkflowInstance instance, @Nullable String key, @Nullable String value) {
         worker.setParameter(instance, key, value);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<WorkflowMetric> getMetrics() {
+        return metrics.getMetrics();
+    }
+}
@@ -0,0 +1,184 @@
+package com.groupstp.workflowstp.core;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Query plan checks of the workflow instance lookup queries of <p>WorkflowWorkerBean</p>.
+ * Synthetic workflow instances are loaded into the provided postgres database inside a transaction which is rolled back
+ * at the end, so the database must be created and updated by the project scripts. Test is skipped if database is not provided:
+ * <pre>gradlew :wfstp-core:test -Dworkflow.planTest.url=jdbc:postgresql://localhost/wfstp -Dworkflow.planTest.user=cuba -Dworkflow.planTest.password=cuba</pre>
+ * Optional <p>workflow.planTest.rows</p> sets count of synthetic instances (100000 by default)
+ * and <p>workflow.planTest.maxMs</p> sets maximum execution time of one lookup query (50 by default).
+ *
+ * @author adiatullin
+ */
+public class WorkflowLookupIndexTest {
+
+    private static final String ENTITY_NAME = "wfstp$PlanTestEntity";
+
+    private static Connection connection;
+    private static UUID workflowId;
+    private static UUID stageId;
+    private static String activeEntityId;
+    private static String finishedEntityId;
+    private static UUID instanceId;
+
+    @BeforeClass
+    public static void setUp() throws SQLException {
+        String url = System.getProperty("workflow.planTest.url");
+        Assume.assumeTrue("workflow.planTest.url is not set, query plan checks are skipped", url != null);
+
+        connection = DriverManager.getConnection(url,
+                System.getProperty("workflow.planTest.user", "cuba"), System.getProperty("workflow.planTest.password", "cuba"));
+        connection.setAutoCommit(false);
+
+        int rows = Integer.getInteger("workflow.planTest.rows", 100000);
+        workflowId = UUID.randomUUID();
+        stageId = UUID.randomUUID();
+        UUID stepId = UUID.randomUUID();
+        //every tenth instance is active, entity IDs and instance IDs are derived from the row number
+        int active = rows / 20 * 10;
+        activeEntityId = uuid("e", active).toString();
+        finishedEntityId = uuid("e", active + 1).toString();
+        instanceId = uuid("i", active);
+
+        try (Statement st = connection.createStatement()) {
+            st.executeUpdate(String.format("insert into WFSTP_WORKFLOW (ID, VERSION, NAME, CODE, ACTIVE, ENTITY_NAME) " +
+                    "values ('%s', 1, 'Plan test', 'plantest', true, '%s')", workflowId, ENTITY_NAME));
+            st.executeUpdate(String.format("insert into WFSTP_STAGE (ID, VERSION, NAME, ENTITY_NAME, TYPE) " +
+                    "values ('%s', 1, 'Plan test', '%s', 2)", stageId, ENTITY_NAME));
+            st.executeUpdate(String.format("insert into WFSTP_STEP (ID, VERSION, START, STAGE_ID, WORKFLOW_ID) " +
+                    "values ('%s', 1, true, '%s', '%s')", stepId, stageId, workflowId));
+            st.executeUpdate(String.format("insert into WFSTP_WORKFLOW_INSTANCE " +
+                    "(ID, VERSION, CREATE_TS, WORKFLOW_ID, ENTITY_NAME, ENTITY_ID, START_DATE, END_DATE, CURRENT_TASK_ID, CURRENT_STEP_ID) " +
+                    "select md5('i' || n)::uuid, 1, now() - n * interval '1 second', '%s', '%s', md5('e' || n)::uuid::text, " +
+                    "now() - n * interval '1 second', case when n %% 10 = 0 then null else now() end, md5('t' || n)::uuid, '%s' " +
+                    "from generate_series(1, %d) n", workflowId, ENTITY_NAME, stepId, rows));
+            st.executeUpdate(String.format("insert into WFSTP_WORKFLOW_INSTANCE_TASK " +
+                    "(ID, VERSION, CREATE_TS, INSTANCE_ID, STEP_ID, START_DATE, END_DATE) " +
+                    "select md5('t' || n)::uuid, 1, now() - n * interval '1 second', md5('i' || n)::uuid, '%s', " +
+                    "now() - n * interval '1 second', case when n %% 10 = 0 then null else now() end " +
+                    "from generate_series(1, %d) n", stepId, rows));
+            st.execute("analyze WFSTP_WORKFLOW_INSTANCE");
+            st.execute("analyze WFSTP_WORKFLOW_INSTANCE_TASK");
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @Test
+    public void activeInstanceByEntity() throws SQLException {
+        //getWorkflowInstance(entity, active = true), isProcessing
+        check(String.format("select t1.* from WFSTP_WORKFLOW_INSTANCE t1 where " +
+                        "t1.ENTITY_NAME = '%s' and t1.ENTITY_ID = '%s' and t1.WORKFLOW_ID = '%s' and t1.END_DATE is null " +
+                        "and t1.DELETE_TS is null order by t1.CREATE_TS desc",
+                ENTITY_NAME, activeEntityId, workflowId), "IDX_WFSTP_WORKFLOW_INSTANCE_ACTIVE_ENTITY");
+    }
+
+    @Test
+    public void instanceByEntity() throws SQLException {
+        //getWorkflowInstance(entity, active = false)
+        check(String.format("select t1.* from WFSTP_WORKFLOW_INSTANCE t1 where " +
+                        "t1.ENTITY_NAME = '%s' and t1.ENTITY_ID = '%s' and t1.WORKFLOW_ID = '%s' " +
+                        "and t1.DELETE_TS is null order by t1.CREATE_TS desc",
+                ENTITY_NAME, finishedEntityId, workflowId), "IDX_WFSTP_WORKFLOW_INSTANCE_ENTITY");
+    }
+
+    @Test
+    public void currentTaskByEntity() throws SQLException {
+        //getWorkflowInstanceTask(entity, active = true)
+        check(String.format("select t0.* from WFSTP_WORKFLOW_INSTANCE t1, WFSTP_WORKFLOW_INSTANCE_TASK t0 where " +
+                        "t1.ENTITY_NAME = '%s' and t1.ENTITY_ID = '%s' and t1.WORKFLOW_ID = '%s' and t0.END_DATE is null " +
+                        "and t0.ID = t1.CURRENT_TASK_ID and t1.DELETE_TS is null and t0.DELETE_TS is null order by t1.CREATE_TS desc",
+                ENTITY_NAME, activeEntityId, workflowId), "IDX_WFSTP_WORKFLOW_INSTANCE_ENTITY");
+    }
+
+    @Test
+    public void currentTaskByEntityAndStage() throws SQLException {
+        //getWorkflowInstanceTask(entity, stage)
+        check(String.format("select t0.* from WFSTP_WORKFLOW_INSTANCE t1, WFSTP_STEP t2, WFSTP_WORKFLOW_INSTANCE_TASK t0 where " +
+                        "t1.ENTITY_NAME = '%s' and t1.ENTITY_ID = '%s' and t1.WORKFLOW_ID = '%s' and t2.STAGE_ID = '%s' " +
+                        "and t0.END_DATE is null and t2.ID = t1.CURRENT_STEP_ID and t0.ID = t1.CURRENT_TASK_ID " +
+                        "and t1.DELETE_TS is null and t2.DELETE_TS is null and t0.DELETE_TS is null order by t1.CREATE_TS desc",
+                ENTITY_NAME, activeEntityId, workflowId, stageId), "IDX_WFSTP_WORKFLOW_INSTANCE_ENTITY");
+    }
+
+    @Test
+    public void currentTasksByEntities() throws SQLException {
+        //getWorkflowInstanceTasks(entities, stage)
+        check(String.format("select t0.* from WFSTP_WORKFLOW_INSTANCE t1, WFSTP_STEP t2, WFSTP_WORKFLOW_INSTANCE_TASK t0 where " +
+                        "t1.ENTITY_NAME = '%s' and t1.ENTITY_ID in ('%s', '%s') and t2.STAGE_ID = '%s' " +
+                        "and t1.END_DATE is null and t0.END_DATE is null and t2.ID = t1.CURRENT_STEP_ID and t0.ID = t1.CURRENT_TASK_ID " +
+                        "and t1.DELETE_TS is null and t2.DELETE_TS is null and t0.DELETE_TS is null order by t1.CREATE_TS desc",
+                ENTITY_NAME, activeEntityId, finishedEntityId, stageId), "IDX_WFSTP_WORKFLOW_INSTANCE_ACTIVE_ENTITY");
+    }
+
+    @Test
+    public void tasksHistoryByInstance() throws SQLException {
+        //workflow instance editor tasks history
+        check(String.format("select t0.* from WFSTP_WORKFLOW_INSTANCE_TASK t0 where " +
+                "t0.INSTANCE_ID = '%s' and t0.DELETE_TS is null order by t0.CREATE_TS asc", instanceId),
+                "IDX_WFSTP_WORKFLOW_INSTANCE_TASK_INSTANCE_CREATE_TS");
+    }
+
+    /**
+     * Check that query plan uses expected index and query is executed in time
+     */
+    private void check(String sql, String index) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("explain " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        }
+        assertTrue(String.format("Index %s is not used:\n%s", index, plan),
+                plan.toString().toLowerCase().contains(index.toLowerCase() + " "));
+
+        long maxMs = Long.getLong("workflow.planTest.maxMs", 50L);
+        long start = System.nanoTime();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            //noinspection StatementWithEmptyBody
+            while (rs.next()) {
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        assertTrue(String.format("Query took %s ms, more than %s ms:\n%s", elapsedMs, maxMs, sql), elapsedMs <= maxMs);
+    }
+
+    private static UUID uuid(String prefix, int n) {
+        //same as md5(prefix || n)::uuid in postgres
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest((prefix + n).getBytes(StandardCharsets.UTF_8));
+            long msb = 0;
+            long lsb = 0;
+            for (int i = 0; i < 8; i++) {
+                msb = (msb << 8) | (hash[i] & 0xff);
+                lsb = (lsb << 8) | (hash[i + 8] & 0xff);
+            }
+            return new UUID(msb, lsb);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
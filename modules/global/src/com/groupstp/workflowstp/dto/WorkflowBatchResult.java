@@ -0,0 +1,61 @@
+package com.groupstp.workflowstp.dto;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * This class using for reporting results of batch workflow tasks processing
+ *
+ * @author adiatullin
+ */
+public class WorkflowBatchResult implements Serializable {
+    private static final long serialVersionUID = 3527519823004581167L;
+
+    private final Map<UUID, UUID> finished = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<UUID, String> errors = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Register successfully finished task
+     *
+     * @param taskId     workflow instance task ID
+     * @param instanceId workflow instance ID
+     */
+    public void addFinished(UUID taskId, UUID instanceId) {
+        finished.put(taskId, instanceId);
+    }
+
+    /**
+     * Register task processing error. Task can be finished but failed to continue the workflow instance.
+     *
+     * @param taskId workflow instance task ID
+     * @param error  error message
+     */
+    public void addError(UUID taskId, @Nullable String error) {
+        errors.put(taskId, error);
+    }
+
+    /**
+     * @return finished tasks IDs with their workflow instances IDs
+     */
+    public Map<UUID, UUID> getFinished() {
+        return Collections.unmodifiableMap(finished);
+    }
+
+    /**
+     * @return failed tasks IDs with error messages
+     */
+    public Map<UUID, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return is all tasks processed without errors
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package com.groupstp.workflowstp.dto;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+
+/**
+ * Snapshot of one workflow engine metric. Counters and gauges have only value,
+ * timers and histograms have count, sum, max and approximate percentiles.
+ *
+ * @author adiatullin
+ */
+public class WorkflowMetric implements Serializable {
+    private static final long serialVersionUID = 4181596018315329140L;
+
+    public enum Type {
+        COUNTER,
+        GAUGE,
+        HISTOGRAM
+    }
+
+    private final String name;
+    private final String tag;
+    private final Type type;
+    private final long count;
+    private final double value;
+    private final long max;
+    private final long p50;
+    private final long p95;
+    private final long p99;
+
+    public WorkflowMetric(String name, @Nullable String tag, Type type, long count, double value, long max, long p50, long p95, long p99) {
+        this.name = name;
+        this.tag = tag;
+        this.type = type;
+        this.count = count;
+        this.value = value;
+        this.max = max;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+    }
+
+    /**
+     * @return metric name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return metric tag: workflow, stage or other dimension of the metric
+     */
+    @Nullable
+    public String getTag() {
+        return tag;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return count of recorded values of histogram
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return counter or gauge value, or sum of recorded values of histogram
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return average recorded value of histogram
+     */
+    public double getMean() {
+        return count == 0 ? 0 : value / count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP95() {
+        return p95;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    @Override
+    public String toString() {
+        String key = tag == null ? name : name + "[" + tag + "]";
+        if (Type.HISTOGRAM.equals(type)) {
+            return String.format("%s: count=%d, mean=%.2f, max=%d, p50<=%d, p95<=%d, p99<=%d", key, count, getMean(), max, p50, p95, p99);
+        }
+        return String.format("%s: %s", key, value % 1 == 0 ? String.valueOf((long) value) : String.valueOf(value));
+    }
+}
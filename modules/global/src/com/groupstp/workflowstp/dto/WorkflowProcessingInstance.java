@@ -0,0 +1,63 @@
+package com.groupstp.workflowstp.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Information about workflow instance which is processing by the middleware node right now
+ *
+ * @author adiatullin
+ */
+public class WorkflowProcessingInstance implements Serializable {
+    private static final long serialVersionUID = -2905130785873447103L;
+
+    private final UUID instanceId;
+    private final String threadName;
+    private final boolean threadAlive;
+    private final Date since;
+
+    public WorkflowProcessingInstance(UUID instanceId, String threadName, boolean threadAlive, Date since) {
+        this.instanceId = instanceId;
+        this.threadName = threadName;
+        this.threadAlive = threadAlive;
+        this.since = since;
+    }
+
+    public UUID getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * @return name of the thread which is processing the instance
+     */
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /**
+     * @return is processing thread still alive
+     */
+    public boolean isThreadAlive() {
+        return threadAlive;
+    }
+
+    /**
+     * @return time when processing was started
+     */
+    public Date getSince() {
+        return since;
+    }
+
+    /**
+     * @return processing elapsed time in milliseconds
+     */
+    public long getElapsedMs() {
+        return Math.max(0, System.currentTimeMillis() - since.getTime());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: thread=%s%s, elapsed=%d ms", instanceId, threadName, threadAlive ? "" : " (dead)", getElapsedMs());
+    }
+}
@@ -0,0 +1,126 @@
+package com.groupstp.workflowstp.dto;
+
+import com.groupstp.workflowstp.entity.Stage;
+import com.groupstp.workflowstp.entity.StageType;
+import com.groupstp.workflowstp.util.EqualsUtils;
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.entity.BaseUuidEntity;
+import com.haulmont.cuba.security.entity.Role;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable pre-resolved actors and viewers of the stage, used for permission checks without loading of the stage users.
+ * Roles are identified by their unique names, so current user session roles can be checked directly.
+ *
+ * @author adiatullin
+ */
+public final class WorkflowStageAccess implements Serializable {
+    private static final long serialVersionUID = 3329805618410326712L;
+
+    private final UUID stageId;
+    private final Integer version;
+    private final boolean interactive;
+    private final Set<UUID> actors;
+    private final Set<String> actorsRoles;
+    private final Set<UUID> viewers;
+    private final Set<String> viewersRoles;
+
+    /**
+     * @param stage stage loaded with actors, viewers and their roles
+     */
+    public WorkflowStageAccess(Stage stage) {
+        Preconditions.checkNotNullArgument(stage);
+
+        this.stageId = stage.getId();
+        this.version = stage.getVersion();
+        this.interactive = EqualsUtils.equalAny(stage.getType(), StageType.USERS_INTERACTION, StageType.ARCHIVE);
+        this.actors = ids(stage.getActors());
+        this.actorsRoles = names(stage.getActorsRoles());
+        this.viewers = ids(stage.getViewers());
+        this.viewersRoles = names(stage.getViewersRoles());
+    }
+
+    public UUID getStageId() {
+        return stageId;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    /**
+     * Check is user an actor of the stage. If stage actors roles specified only roles are checked.
+     *
+     * @param userId user ID
+     * @param roles  user roles names
+     * @return is user an actor
+     */
+    public boolean isActor(UUID userId, Collection<String> roles) {
+        return check(actors, actorsRoles, userId, roles);
+    }
+
+    /**
+     * Check is user a viewer of the stage. If stage viewers roles specified only roles are checked.
+     *
+     * @param userId user ID
+     * @param roles  user roles names
+     * @return is user a viewer
+     */
+    public boolean isViewer(UUID userId, Collection<String> roles) {
+        return check(viewers, viewersRoles, userId, roles);
+    }
+
+    /**
+     * @return are actors defined by roles
+     */
+    public boolean hasActorsRoles() {
+        return !actorsRoles.isEmpty();
+    }
+
+    /**
+     * @return are viewers defined by roles
+     */
+    public boolean hasViewersRoles() {
+        return !viewersRoles.isEmpty();
+    }
+
+    private boolean check(Set<UUID> users, Set<String> usersRoles, UUID userId, @Nullable Collection<String> roles) {
+        if (interactive) {
+            if (!usersRoles.isEmpty()) {
+                if (roles != null) {
+                    for (String role : roles) {
+                        if (usersRoles.contains(role)) {
+                            return true;
+                        }
+                    }
+                }
+            } else {
+                return users.contains(userId);
+            }
+        }
+        return false;
+    }
+
+    private static Set<UUID> ids(@Nullable Collection<? extends BaseUuidEntity> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(entities.stream()
+                .map(BaseUuidEntity::getId)
+                .collect(Collectors.toSet()));
+    }
+
+    private static Set<String> names(@Nullable Collection<Role> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(roles.stream()
+                .map(Role::getName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,71 @@
+package com.groupstp.workflowstp.dto;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * This class using for reporting results of batch workflows starting
+ *
+ * @author adiatullin
+ */
+public class WorkflowStartResult implements Serializable {
+    private static final long serialVersionUID = -4902377361824150263L;
+
+    private final Map<Object, UUID> started = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final Map<Object, String> errors = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * Register successfully started workflow
+     *
+     * @param entityId   workflow entity ID
+     * @param instanceId created workflow instance ID
+     */
+    public void addStarted(Object entityId, UUID instanceId) {
+        started.put(entityId, instanceId);
+    }
+
+    /**
+     * Register workflow starting error. Workflow can be started but failed on the first step.
+     *
+     * @param entityId workflow entity ID
+     * @param error    error message
+     */
+    public void addError(Object entityId, @Nullable String error) {
+        errors.put(entityId, error);
+    }
+
+    /**
+     * Append results of another report into current one
+     *
+     * @param other another report
+     */
+    public void merge(WorkflowStartResult other) {
+        started.putAll(other.getStarted());
+        errors.putAll(other.getErrors());
+    }
+
+    /**
+     * @return workflow entities IDs with their created workflow instances IDs
+     */
+    public Map<Object, UUID> getStarted() {
+        return Collections.unmodifiableMap(started);
+    }
+
+    /**
+     * @return failed workflow entities IDs with error messages
+     */
+    public Map<Object, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return is all workflows started without errors
+     */
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+}
@@ -0,0 +1,160 @@
+package com.groupstp.workflowstp.entity;
+
+import com.haulmont.chile.core.annotations.NamePattern;
+import com.haulmont.cuba.core.entity.BaseUuidEntity;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Read-only representation of archived finished workflow instance
+ *
+ * @author adiatullin
+ */
+@NamePattern("%s-%s|workflow,entityId,entityName")
+@Table(name = "WFSTP_WORKFLOW_INSTANCE_ARCH")
+@Entity(name = "wfstp$ArchivedWorkflowInstance")
+public class ArchivedWorkflowInstance extends BaseUuidEntity {
+    private static final long serialVersionUID = 6190523711298376345L;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "CREATE_TS", updatable = false)
+    private Date createTs;
+
+    @Column(name = "CREATED_BY", updatable = false)
+    private String createdBy;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "WORKFLOW_ID", updatable = false)
+    private Workflow workflow;
+
+    @Column(name = "ENTITY_NAME", updatable = false)
+    private String entityName;
+
+    @Column(name = "ENTITY_ID", updatable = false)
+    private String entityId;
+
+    @Lob
+    @Column(name = "CONTEXT", updatable = false)
+    private String context;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "START_DATE", updatable = false)
+    private Date startDate;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "END_DATE", updatable = false)
+    private Date endDate;
+
+    @Lob
+    @Column(name = "ERROR_", updatable = false)
+    private String error;
+
+    @Column(name = "ERROR_IN_TASK", updatable = false)
+    private Boolean errorInTask;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ERROR_REF_ID", updatable = false)
+    private WorkflowError errorRef;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "ARCHIVE_TS", updatable = false)
+    private Date archiveTs;
+
+
+    public Date getCreateTs() {
+        return createTs;
+    }
+
+    public void setCreateTs(Date createTs) {
+        this.createTs = createTs;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public Workflow getWorkflow() {
+        return workflow;
+    }
+
+    public void setWorkflow(Workflow workflow) {
+        this.workflow = workflow;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public void setEntityName(String entityName) {
+        this.entityName = entityName;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    public void setEntityId(String entityId) {
+        this.entityId = entityId;
+    }
+
+    public String getContext() {
+        return context;
+    }
+
+    public void setContext(String context) {
+        this.context = context;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Date endDate) {
+        this.endDate = endDate;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Boolean getErrorInTask() {
+        return errorInTask;
+    }
+
+    public void setErrorInTask(Boolean errorInTask) {
+        this.errorInTask = errorInTask;
+    }
+
+    public WorkflowError getErrorRef() {
+        return errorRef;
+    }
+
+    public void setErrorRef(WorkflowError errorRef) {
+        this.errorRef = errorRef;
+    }
+
+    public Date getArchiveTs() {
+        return archiveTs;
+    }
+
+    public void setArchiveTs(Date archiveTs) {
+        this.archiveTs = archiveTs;
+    }
+}
@@ -3,6 +3,7 @@ package com.groupstp.workflowstp.entity;
 import com.haulmont.chile.core.annotations.MetaProperty;
 import com.haulmont.chile.core.annotations.NamePattern;
 import com.haulmont.cuba.core.entity.StandardEntity;
+import com.haulmont.cuba.core.entity.annotation.Listeners;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.MessageTools;
 import com.haulmont.cuba.core.global.Metadata;
@@ -20,6 +21,7 @@ import java.util.List;
  */
 @NamePattern("%s|name,entityName,type")
 @Table(name = "WFSTP_STAGE")
+@Listeners("wfstp_WorkflowDefinitionEntityListener")
 @Entity(name = "wfstp$Stage")
 public class Stage extends StandardEntity {
     private static final long serialVersionUID = 1256356222180211224L;
@@ -67,6 +69,18 @@ public class Stage extends StandardEntity {
     @Column(name = "EXECUTION_BEAN_NAME")
     private String executionBeanName;
 
+    @Column(name = "EXECUTION_TIMEOUT_SEC")
+    private Integer executionTimeoutSec;
+
+    @Column(name = "FAIL_ON_EXECUTION_TIMEOUT")
+    private Boolean failOnExecutionTimeout;
+
+    @Column(name = "MAX_CONCURRENT_EXECUTIONS")
+    private Integer maxConcurrentExecutions;
+
+    @Column(name = "EXECUTIONS_PER_SECOND")
+    private Integer executionsPerSecond;
+
     @Deprecated
     @Lob
     @Column(name = "BROWSE_SCREEN_GROOVY_SCRIPT")
@@ -173,6 +187,38 @@ public class Stage extends StandardEntity {
         this.executionBeanName = executionBeanName;
     }
 
+    public Integer getExecutionTimeoutSec() {
+        return executionTimeoutSec;
+    }
+
+    public void setExecutionTimeoutSec(Integer executionTimeoutSec) {
+        this.executionTimeoutSec = executionTimeoutSec;
+    }
+
+    public Boolean getFailOnExecutionTimeout() {
+        return failOnExecutionTimeout;
+    }
+
+    public void setFailOnExecutionTimeout(Boolean failOnExecutionTimeout) {
+        this.failOnExecutionTimeout = failOnExecutionTimeout;
+    }
+
+    public Integer getMaxConcurrentExecutions() {
+        return maxConcurrentExecutions;
+    }
+
+    public void setMaxConcurrentExecutions(Integer maxConcurrentExecutions) {
+        this.maxConcurrentExecutions = maxConcurrentExecutions;
+    }
+
+    public Integer getExecutionsPerSecond() {
+        return executionsPerSecond;
+    }
+
+    public void setExecutionsPerSecond(Integer executionsPerSecond) {
+        this.executionsPerSecond = executionsPerSecond;
+    }
+
     @Deprecated
     public String getBrowseScreenGroovyScript() {
         return browseScreenGroovyScript;
@@ -3,6 +3,7 @@ package com.groupstp.workflowstp.entity;
 import com.haulmont.chile.core.annotations.Composition;
 import com.haulmont.chile.core.annotations.NamePattern;
 import com.haulmont.cuba.core.entity.StandardEntity;
+import com.haulmont.cuba.core.entity.annotation.Listeners;
 import com.haulmont.cuba.core.entity.annotation.OnDelete;
 import com.haulmont.cuba.core.entity.annotation.OnDeleteInverse;
 import com.haulmont.cuba.core.global.DeletePolicy;
@@ -18,6 +19,7 @@ import java.util.List;
  */
 @NamePattern("%s|stage")
 @Table(name = "WFSTP_STEP")
+@Listeners("wfstp_WorkflowDefinitionEntityListener")
 @Entity(name = "wfstp$Step")
 public class Step extends StandardEntity {
     private static final long serialVersionUID = 5659734088709526091L;
@@ -40,6 +42,18 @@ public class Step extends StandardEntity {
     @Column(name = "REPEAT_SEC")
     private Integer repeatSec;
 
+    @Column(name = "RETRY_MULTIPLIER")
+    private Double retryMultiplier;
+
+    @Column(name = "RETRY_JITTER")
+    private Double retryJitter;
+
+    @Column(name = "RETRY_MAX_DELAY_SEC")
+    private Integer retryMaxDelaySec;
+
+    @Column(name = "RETRY_MAX_ATTEMPTS")
+    private Integer retryMaxAttempts;
+
     @OrderBy("order")
     @Composition
     @OnDelete(DeletePolicy.CASCADE)
@@ -92,6 +106,38 @@ public class Step extends StandardEntity {
         this.repeatSec = repeatSec;
     }
 
+    public Double getRetryMultiplier() {
+        return retryMultiplier;
+    }
+
+    public void setRetryMultiplier(Double retryMultiplier) {
+        this.retryMultiplier = retryMultiplier;
+    }
+
+    public Double getRetryJitter() {
+        return retryJitter;
+    }
+
+    public void setRetryJitter(Double retryJitter) {
+        this.retryJitter = retryJitter;
+    }
+
+    public Integer getRetryMaxDelaySec() {
+        return retryMaxDelaySec;
+    }
+
+    public void setRetryMaxDelaySec(Integer retryMaxDelaySec) {
+        this.retryMaxDelaySec = retryMaxDelaySec;
+    }
+
+    public Integer getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(Integer retryMaxAttempts) {
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
     public List<StepDirection> getDirections() {
         return directions;
     }
@@ -2,6 +2,7 @@ package com.groupstp.workflowstp.entity;
 
 import com.haulmont.chile.core.annotations.NamePattern;
 import com.haulmont.cuba.core.entity.StandardEntity;
+import com.haulmont.cuba.core.entity.annotation.Listeners;
 import com.haulmont.cuba.core.entity.annotation.OnDeleteInverse;
 import com.haulmont.cuba.core.global.DeletePolicy;
 
@@ -15,6 +16,7 @@ import javax.validation.constraints.NotNull;
  */
 @NamePattern("%s-%s|from,to")
 @Table(name = "WFSTP_STEP_DIRECTION")
+@Listeners("wfstp_WorkflowDefinitionEntityListener")
 @Entity(name = "wfstp$StepDirection")
 public class StepDirection extends StandardEntity {
     private static final long serialVersionUID = -2403604726600820573L;
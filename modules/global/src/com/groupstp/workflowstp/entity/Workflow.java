@@ -4,6 +4,7 @@ import com.haulmont.chile.core.annotations.Composition;
 import com.haulmont.chile.core.annotations.MetaProperty;
 import com.haulmont.chile.core.annotations.NamePattern;
 import com.haulmont.cuba.core.entity.StandardEntity;
+import com.haulmont.cuba.core.entity.annotation.Listeners;
 import com.haulmont.cuba.core.entity.annotation.OnDelete;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.DeletePolicy;
@@ -21,6 +22,7 @@ import java.util.List;
  */
 @NamePattern("%s|name,entityName,code")
 @Table(name = "WFSTP_WORKFLOW")
+@Listeners("wfstp_WorkflowDefinitionEntityListener")
 @Entity(name = "wfstp$Workflow")
 public class Workflow extends StandardEntity {
     private static final long serialVersionUID = -6925865535999298172L;
@@ -2,6 +2,7 @@ package com.groupstp.workflowstp.entity;
 
 import com.haulmont.chile.core.annotations.NamePattern;
 import com.haulmont.cuba.core.entity.StandardEntity;
+import com.haulmont.cuba.core.entity.annotation.Listeners;
 import com.haulmont.cuba.core.entity.annotation.OnDeleteInverse;
 import com.haulmont.cuba.core.global.DeletePolicy;
 
@@ -15,6 +16,7 @@ import javax.validation.constraints.NotNull;
  */
 @NamePattern("%s - %s|entityName,priority")
 @Table(name = "WFSTP_WORKFLOW_DEFINITION")
+@Listeners("wfstp_WorkflowDefinitionEntityListener")
 @Entity(name = "wfstp$WorkflowDefinition")
 public class WorkflowDefinition extends StandardEntity {
     private static final long serialVersionUID = 4418956540782790555L;
@@ -0,0 +1,138 @@
+package com.groupstp.workflowstp.entity;
+
+import com.groupstp.workflowstp.util.CompressionUtils;
+import com.haulmont.chile.core.annotations.MetaProperty;
+import com.haulmont.chile.core.annotations.NamePattern;
+import com.haulmont.cuba.core.entity.BaseUuidEntity;
+import com.haulmont.cuba.core.entity.Creatable;
+import com.haulmont.cuba.core.entity.Versioned;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Deduplicated signature of workflow instances failure
+ *
+ * @author adiatullin
+ */
+@NamePattern("%s|message")
+@Table(name = "WFSTP_WORKFLOW_ERROR")
+@Entity(name = "wfstp$WorkflowError")
+public class WorkflowError extends BaseUuidEntity implements Versioned, Creatable {
+    private static final long serialVersionUID = -2837105294418260143L;
+
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private Integer version;
+
+    @Column(name = "CREATE_TS")
+    private Date createTs;
+
+    @Column(name = "CREATED_BY", length = 50)
+    private String createdBy;
+
+    @Column(name = "HASH", nullable = false, length = 64)
+    private String hash;
+
+    @Lob
+    @Column(name = "MESSAGE")
+    private String message;
+
+    @Column(name = "TRACE")
+    private byte[] trace;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "FIRST_SEEN", nullable = false)
+    private Date firstSeen;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "LAST_SEEN", nullable = false)
+    private Date lastSeen;
+
+    @Column(name = "OCCURRENCES", nullable = false)
+    private Long occurrences;
+
+
+    @Override
+    public Integer getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
+    @Override
+    public Date getCreateTs() {
+        return createTs;
+    }
+
+    @Override
+    public void setCreateTs(Date createTs) {
+        this.createTs = createTs;
+    }
+
+    @Override
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    @Override
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public byte[] getTrace() {
+        return trace;
+    }
+
+    public void setTrace(byte[] trace) {
+        this.trace = trace;
+    }
+
+    @MetaProperty(related = "trace")
+    public String getTraceText() {
+        return CompressionUtils.decompress(getTrace());
+    }
+
+    public Date getFirstSeen() {
+        return firstSeen;
+    }
+
+    public void setFirstSeen(Date firstSeen) {
+        this.firstSeen = firstSeen;
+    }
+
+    public Date getLastSeen() {
+        return lastSeen;
+    }
+
+    public void setLastSeen(Date lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+
+    public Long getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(Long occurrences) {
+        this.occurrences = occurrences;
+    }
+}
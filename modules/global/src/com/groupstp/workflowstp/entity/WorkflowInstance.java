@@ -70,6 +70,28 @@ public class WorkflowInstance extends StandardEntity {
     @Column(name = "ERROR_IN_TASK")
     private Boolean errorInTask = false;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ERROR_REF_ID")
+    private WorkflowError errorRef;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "NEXT_WAKEUP_AT")
+    private Date nextWakeupAt;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "CURRENT_TASK_ID")
+    private WorkflowInstanceTask currentTask;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "CURRENT_STEP_ID")
+    private Step currentStep;
+
+    @Column(name = "ATTEMPTS")
+    private Integer attempts;
+
+    @Column(name = "STALLED")
+    private Boolean stalled;
+
 
     public Workflow getWorkflow() {
         return workflow;
@@ -157,4 +179,52 @@ public class WorkflowInstance extends StandardEntity {
     public void setErrorInTask(Boolean errorInTask) {
         this.errorInTask = errorInTask;
     }
+
+    public WorkflowError getErrorRef() {
+        return errorRef;
+    }
+
+    public void setErrorRef(WorkflowError errorRef) {
+        this.errorRef = errorRef;
+    }
+
+    public Date getNextWakeupAt() {
+        return nextWakeupAt;
+    }
+
+    public void setNextWakeupAt(Date nextWakeupAt) {
+        this.nextWakeupAt = nextWakeupAt;
+    }
+
+    public WorkflowInstanceTask getCurrentTask() {
+        return currentTask;
+    }
+
+    public void setCurrentTask(WorkflowInstanceTask currentTask) {
+        this.currentTask = currentTask;
+    }
+
+    public Step getCurrentStep() {
+        return currentStep;
+    }
+
+    public void setCurrentStep(Step currentStep) {
+        this.currentStep = currentStep;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Boolean getStalled() {
+        return stalled;
+    }
+
+    public void setStalled(Boolean stalled) {
+        this.stalled = stalled;
+    }
 }
@@ -0,0 +1,33 @@
+package com.groupstp.workflowstp.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.UUID;
+
+/**
+ * This event using for notifying caches about changes of workflow definition entities
+ * (workflows, steps, directions, stages and definitions)
+ *
+ * @author adiatullin
+ */
+public class WorkflowDefinitionChangedEvent extends ApplicationEvent {
+    private static final long serialVersionUID = -1791583628203871502L;
+
+    private final String entityName;
+    private final UUID entityId;
+
+    public WorkflowDefinitionChangedEvent(String entityName, UUID entityId) {
+        super("workflow");
+
+        this.entityName = entityName;
+        this.entityId = entityId;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public UUID getEntityId() {
+        return entityId;
+    }
+}
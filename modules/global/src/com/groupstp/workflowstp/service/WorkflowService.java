@@ -2,9 +2,15 @@ package com.groupstp.workflowstp.service;
 
 import com.groupstp.workflowstp.entity.*;
 import com.groupstp.workflowstp.exception.WorkflowException;
+import com.groupstp.workflowstp.dto.WorkflowBatchResult;
 import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import com.groupstp.workflowstp.dto.WorkflowMetric;
+import com.groupstp.workflowstp.dto.WorkflowStageAccess;
+import com.groupstp.workflowstp.dto.WorkflowStartResult;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -43,6 +49,17 @@ public interface WorkflowService {
      */
     UUID startWorkflow(WorkflowEntity entity, Workflow wf) throws WorkflowException;
 
+    /**
+     * Determinate suitable workflows and start them for several entities. Entities are processed by chunks:
+     * workflow definitions are checked once per chunk and workflow instances with their first tasks are created by batch
+     * if {@code workflow.startBatchInsertEnable} is set. Batch creation doesn't invoke entity listeners, so entities of classes
+     * with registered listeners and all entities if batch creation is disabled are started one by one like {@code startWorkflow}.
+     *
+     * @param entities workflow entities
+     * @return per entity processing report
+     */
+    WorkflowStartResult startWorkflows(Collection<? extends WorkflowEntity> entities);
+
     /**
      * Restart failed workflow instance
      *
@@ -77,6 +94,25 @@ public interface WorkflowService {
      */
     void moveWorkflow(WorkflowInstance instance, Step step) throws WorkflowException;
 
+    /**
+     * Wake up workflow instance which is stalled because attempts of the current step were exhausted.
+     * Attempts are reset and the instance is continued by the next heartbeat.
+     *
+     * @param instance stalled workflow instance
+     * @throws WorkflowException in case of any unexpected problems
+     */
+    void wakeupWorkflow(WorkflowInstance instance) throws WorkflowException;
+
+    /**
+     * Wait until asynchronous continuations of provided workflow instance are performed.
+     * Useful if asynchronous mode enabled and caller need to know the actual workflow instance state.
+     *
+     * @param instance  workflow instance
+     * @param timeoutMs maximum time to wait in milliseconds
+     * @return true if instance continuations are performed, false if timeout elapsed
+     */
+    boolean await(WorkflowInstance instance, long timeoutMs);
+
     /**
      * Check is current workflow entity processing (processed) or not
      *
@@ -148,6 +184,23 @@ public interface WorkflowService {
     @Nullable
     Stage getStage(WorkflowEntity entity);
 
+    /**
+     * Get pre-resolved actors and viewers of the stage from the stages index which is invalidated on any stages changes in the cluster
+     *
+     * @param stage stage object
+     * @return stage access
+     */
+    WorkflowStageAccess getStageAccess(Stage stage);
+
+    /**
+     * Get active tasks of provided stage for several workflow entities by one query
+     *
+     * @param entities workflow entities of one type
+     * @param stage    processing stage
+     * @return found active tasks, entities without active task of the stage are skipped
+     */
+    List<WorkflowInstanceTask> getWorkflowInstanceTasks(Collection<? extends WorkflowEntity> entities, Stage stage);
+
     /**
      * Complete (if possible) provided workflow task and move workflow instance to the next step
      *
@@ -168,6 +221,17 @@ public interface WorkflowService {
      */
     void finishTask(WorkflowInstanceTask task, @Nullable Map<String, String> params, String... performersLogin) throws WorkflowException;
 
+    /**
+     * Complete (if possible) several workflow tasks with additional parameters and move their workflow instances
+     * to the next steps in parallel. Failure of one task doesn't affect another ones.
+     *
+     * @param tasks           workflow instance tasks
+     * @param params          additional workflow execution parameters which must be saved
+     * @param performersLogin task perform users login, or, if nothing passed, only a current user will be used
+     * @return per task processing report
+     */
+    WorkflowBatchResult finishTasks(Collection<WorkflowInstanceTask> tasks, @Nullable Map<String, String> params, String... performersLogin);
+
     /**
      * Get workflow execution context
      *
@@ -202,4 +266,11 @@ public interface WorkflowService {
      * @param value    variable value
      */
     void setParameter(WorkflowInstance instance, @Nullable String key, @Nullable String value);
-}
\ No newline at end of file
+
+    /**
+     * Get snapshot of workflow engine metrics of the current middleware node
+     *
+     * @return counters, gauges and latency histograms
+     */
+    List<WorkflowMetric> getMetrics();
+}
@@ -0,0 +1,60 @@
+package com.groupstp.workflowstp.util;
+
+import org.apache.commons.io.IOUtils;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Special text compression util class
+ *
+ * @author adiatullin
+ */
+public final class CompressionUtils {
+
+    private CompressionUtils() {
+    }
+
+    /**
+     * Compress text by gzip
+     *
+     * @param text compressing text
+     * @return compressed bytes
+     */
+    @Nullable
+    public static byte[] compress(@Nullable String text) {
+        if (text == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compress text", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompress text compressed by {@link #compress(String)}
+     *
+     * @param data compressed bytes
+     * @return original text
+     */
+    @Nullable
+    public static String decompress(@Nullable byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decompress text", e);
+        }
+    }
+}
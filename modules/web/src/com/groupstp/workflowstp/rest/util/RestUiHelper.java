@@ -1,5 +1,6 @@
 package com.groupstp.workflowstp.rest.util;
 
+import com.groupstp.workflowstp.dto.WorkflowBatchResult;
 import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
 import com.groupstp.workflowstp.entity.Stage;
 import com.groupstp.workflowstp.entity.WorkflowEntity;
@@ -15,7 +16,9 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Predicate;
@@ -128,10 +131,20 @@ public class RestUiHelper {
                                                  @Nullable Predicate<WorkflowEntity> predicate) {
         try {
             if (!CollectionUtils.isEmpty(entities)) {
+                List<WorkflowEntity> items = new ArrayList<>(entities.size());
                 for (WorkflowEntity entity : entities) {
                     if (predicate == null || predicate.test(entity)) {
-                        WorkflowInstanceTask itemTask = workflowService.getWorkflowInstanceTaskNN(entity, stage);
-                        workflowService.finishTask(itemTask, params);
+                        items.add(entity);
+                    }
+                }
+                if (!items.isEmpty()) {
+                    List<WorkflowInstanceTask> tasks = workflowService.getWorkflowInstanceTasks(items, stage);
+                    if (tasks.size() < items.size()) {
+                        throw new RuntimeException(String.format(messages.getMainMessage("workflow.taskAlreadyExecuted"), stage.getName()));
+                    }
+                    WorkflowBatchResult result = workflowService.finishTasks(tasks, params);
+                    if (!result.isSuccess()) {
+                        throw new RuntimeException(String.join("\n", result.getErrors().values()));
                     }
                 }
             }
@@ -0,0 +1,27 @@
+package com.groupstp.workflowstp.web.archivedworkflowinstance;
+
+import com.groupstp.workflowstp.entity.ArchivedWorkflowInstance;
+import com.groupstp.workflowstp.entity.Workflow;
+import com.groupstp.workflowstp.web.util.WebUiHelper;
+import com.haulmont.cuba.gui.components.AbstractLookup;
+import com.haulmont.cuba.gui.components.Table;
+
+import javax.inject.Inject;
+import java.util.Map;
+
+/**
+ * Read-only browser of archived workflow instances
+ *
+ * @author adiatullin
+ */
+public class ArchivedWorkflowInstanceBrowse extends AbstractLookup {
+    @Inject
+    private Table<ArchivedWorkflowInstance> archivedWorkflowInstancesTable;
+
+    @Override
+    public void init(Map<String, Object> params) {
+        super.init(params);
+
+        WebUiHelper.showLinkOnTable(archivedWorkflowInstancesTable, "workflow", entity -> ((Workflow) entity).getName());
+    }
+}
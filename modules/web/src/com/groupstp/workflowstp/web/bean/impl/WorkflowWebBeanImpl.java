@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.groupstp.workflowstp.annotation.WorkflowDetails;
 import com.groupstp.workflowstp.bean.WorkflowSugarProcessor;
 import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
+import com.groupstp.workflowstp.dto.WorkflowStageAccess;
 import com.groupstp.workflowstp.entity.*;
 import com.groupstp.workflowstp.exception.WorkflowException;
 import com.groupstp.workflowstp.service.WorkflowService;
@@ -18,7 +19,7 @@ import com.haulmont.cuba.gui.components.Frame;
 import com.haulmont.cuba.gui.components.Table;
 import com.haulmont.cuba.gui.config.WindowConfig;
 import com.haulmont.cuba.security.entity.User;
-import com.haulmont.cuba.security.entity.UserRole;
+import com.haulmont.cuba.security.global.UserSession;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.ComparatorUtils;
 import org.apache.commons.lang.StringUtils;
@@ -61,6 +62,9 @@ public class WorkflowWebBeanImpl implements WorkflowWebBean {
     @Inject
     protected WorkflowSugarProcessor sugar;
 
+    @Inject
+    protected UserSessionSource userSessionSource;
+
     @Inject
     protected WorkflowWebConfig webConfig;
 
@@ -111,21 +115,8 @@ public class WorkflowWebBeanImpl implements WorkflowWebBean {
     @Override
     public boolean isActor(User user, Stage stage) {
         if (stage != null && user != null) {
-            stage = reloadIfNeed(stage, "stage-with-users");
-            if (EqualsUtils.equalAny(stage.getType(), StageType.USERS_INTERACTION, StageType.ARCHIVE)) {
-                if (!CollectionUtils.isEmpty(stage.getActorsRoles())) {
-                    user = reloadIfNeed(user, "user-with-roles");
-                    if (!CollectionUtils.isEmpty(user.getUserRoles())) {
-                        for (UserRole ur : user.getUserRoles()) {
-                            if (stage.getActorsRoles().contains(ur.getRole())) {
-                                return true;
-                            }
-                        }
-                    }
-                } else if (!CollectionUtils.isEmpty(stage.getActors())) {
-                    return stage.getActors().contains(user);
-                }
-            }
+            WorkflowStageAccess access = getStageAccess(stage);
+            return access.isActor(user.getId(), access.hasActorsRoles() ? getRoles(user) : Collections.emptySet());
         }
         return false;
     }
@@ -133,25 +124,36 @@ public class WorkflowWebBeanImpl implements WorkflowWebBean {
     @Override
     public boolean isViewer(User user, Stage stage) {
         if (stage != null && user != null) {
-            stage = reloadIfNeed(stage, "stage-with-users");
-            if (EqualsUtils.equalAny(stage.getType(), StageType.USERS_INTERACTION, StageType.ARCHIVE)) {
-                if (!CollectionUtils.isEmpty(stage.getViewersRoles())) {
-                    user = reloadIfNeed(user, "user-with-roles");
-                    if (!CollectionUtils.isEmpty(user.getUserRoles())) {
-                        for (UserRole ur : user.getUserRoles()) {
-                            if (stage.getViewersRoles().contains(ur.getRole())) {
-                                return true;
-                            }
-                        }
-                    }
-                } else if (!CollectionUtils.isEmpty(stage.getViewers())) {
-                    return stage.getViewers().contains(user);
-                }
-            }
+            WorkflowStageAccess access = getStageAccess(stage);
+            return access.isViewer(user.getId(), access.hasViewersRoles() ? getRoles(user) : Collections.emptySet());
         }
         return false;
     }
 
+    /**
+     * Get pre-resolved stage actors and viewers from the core stages index
+     */
+    protected WorkflowStageAccess getStageAccess(Stage stage) {
+        return service.getStageAccess(stage);
+    }
+
+    /**
+     * @return names of user roles, current user roles are taken from the user session
+     */
+    protected Collection<String> getRoles(User user) {
+        UserSession session = userSessionSource.getUserSession();
+        if (session != null && user.equals(session.getUser())) {
+            return session.getRoles();
+        }
+        user = reloadIfNeed(user, "user-with-roles");
+        if (CollectionUtils.isEmpty(user.getUserRoles())) {
+            return Collections.emptySet();
+        }
+        return user.getUserRoles().stream()
+                .map(ur -> ur.getRole().getName())
+                .collect(Collectors.toSet());
+    }
+
     private <T extends Entity> T reloadIfNeed(T entity, String view) {
         if (!PersistenceHelper.isLoadedWithView(entity, view)) {
             entity = dataManager.reload(entity, view);
@@ -473,6 +473,10 @@ public class StageEdit extends AbstractEditor<Stage> {
                 }
                 item.setExecutionGroovyScript(null);
                 item.setExecutionBeanName(null);
+                item.setExecutionTimeoutSec(null);
+                item.setFailOnExecutionTimeout(null);
+                item.setMaxConcurrentExecutions(null);
+                item.setExecutionsPerSecond(null);
 
                 //cleanup viewers
                 if (ActorsType.USER.equals(viewerTypeAction.getValue())) {//selected users only
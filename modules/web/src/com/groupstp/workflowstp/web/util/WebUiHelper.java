@@ -1,5 +1,6 @@
 package com.groupstp.workflowstp.web.util;
 
+import com.groupstp.workflowstp.dto.WorkflowBatchResult;
 import com.groupstp.workflowstp.dto.WorkflowExecutionContext;
 import com.groupstp.workflowstp.entity.Stage;
 import com.groupstp.workflowstp.entity.WorkflowEntity;
@@ -707,16 +708,27 @@ public class WebUiHelper {
                 Set<WorkflowEntity> selected = table.getSelected();
                 if (!CollectionUtils.isEmpty(selected)) {
                     commitTableIfNeed(table);
+                    Map<WorkflowEntity, String> errors;
                     try {
+                        List<WorkflowEntity> items = new ArrayList<>(selected.size());
                         for (WorkflowEntity item : selected) {
                             if (predicate == null || predicate.test(item)) {
-                                WorkflowInstanceTask itemTask = workflowService.getWorkflowInstanceTaskNN(item, stage);
-                                workflowService.finishTask(itemTask, params);
+                                items.add(item);
                             }
                         }
+                        errors = finishTasks(items, stage, params);
                     } finally {
                         table.getDatasource().refresh();
                     }
+                    if (!errors.isEmpty()) {
+                        StringBuilder sb = new StringBuilder();
+                        for (Map.Entry<WorkflowEntity, String> e : errors.entrySet()) {
+                            sb.append(e.getKey().getInstanceName()).append(": ").append(e.getValue()).append("<br>");
+                        }
+                        screen.showNotification(
+                                String.format(messages.getMainMessage("workflow.batchProcessingError"), errors.size(), selected.size()),
+                                sb.toString(), Frame.NotificationType.WARNING_HTML);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -724,6 +736,46 @@ public class WebUiHelper {
         }
     }
 
+    /**
+     * Complete workflow tasks of provided entities in one batch
+     *
+     * @param entities workflow entities
+     * @param stage    current stage of the entities
+     * @param params   processing parameters
+     * @return failed entities with error messages
+     */
+    protected Map<WorkflowEntity, String> finishTasks(Collection<WorkflowEntity> entities, Stage stage, Map<String, String> params) {
+        Map<WorkflowEntity, String> errors = new LinkedHashMap<>();
+        if (CollectionUtils.isEmpty(entities)) {
+            return errors;
+        }
+        Map<String, WorkflowEntity> entitiesById = new LinkedHashMap<>();
+        for (WorkflowEntity entity : entities) {
+            entitiesById.put(entity.getId().toString(), entity);
+        }
+
+        List<WorkflowInstanceTask> tasks = workflowService.getWorkflowInstanceTasks(entities, stage);
+        Map<UUID, WorkflowEntity> entitiesByTask = new HashMap<>();
+        for (WorkflowInstanceTask task : tasks) {
+            entitiesByTask.put(task.getId(), entitiesById.get(task.getInstance().getEntityId()));
+        }
+        Set<WorkflowEntity> found = new HashSet<>(entitiesByTask.values());
+        for (WorkflowEntity entity : entities) {
+            if (!found.contains(entity)) {
+                errors.put(entity, String.format(messages.getMainMessage("workflow.taskAlreadyExecuted"), stage.getName()));
+            }
+        }
+
+        WorkflowBatchResult result = workflowService.finishTasks(tasks, params);
+        for (Map.Entry<UUID, String> e : result.getErrors().entrySet()) {
+            WorkflowEntity entity = entitiesByTask.get(e.getKey());
+            if (entity != null) {
+                errors.put(entity, e.getValue());
+            }
+        }
+        return errors;
+    }
+
     /**
      * Cumulative workflow action perming
      * <p>
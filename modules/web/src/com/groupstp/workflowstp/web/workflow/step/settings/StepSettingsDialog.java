@@ -71,7 +71,12 @@ public class StepSettingsDialog extends AbstractWindow {
         stepDs.setItem(metadataTools.copy(originalStep));
         stepDs.setModified(false);
 
-        mainFieldGroup.getFieldNN("repeatSec").setVisible(ALGORITHM_EXECUTION.equals(step.getStage().getType()));
+        boolean algorithm = ALGORITHM_EXECUTION.equals(step.getStage().getType());
+        mainFieldGroup.getFieldNN("repeatSec").setVisible(algorithm);
+        mainFieldGroup.getFieldNN("retryMultiplier").setVisible(algorithm);
+        mainFieldGroup.getFieldNN("retryJitter").setVisible(algorithm);
+        mainFieldGroup.getFieldNN("retryMaxDelaySec").setVisible(algorithm);
+        mainFieldGroup.getFieldNN("retryMaxAttempts").setVisible(algorithm);
         mainFieldGroup.getFieldNN("timeoutSec").setVisible(EqualsUtils.equalAny(step.getStage().getType(), ALGORITHM_EXECUTION, USERS_INTERACTION));
     }
 
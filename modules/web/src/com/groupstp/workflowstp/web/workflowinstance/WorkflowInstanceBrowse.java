@@ -125,5 +125,32 @@ public class WorkflowInstanceBrowse extends AbstractLookup {
                 return false;
             }
         });
+
+        workflowInstancesTable.addAction(new BaseAction("wakeup") {
+            @Override
+            public void actionPerform(Component component) {
+                WorkflowInstance instance = workflowInstancesTable.getSingleSelected();
+                if (instance != null) {
+                    try {
+                        service.wakeupWorkflow(instance);
+                    } catch (Exception e) {
+                        throw new RuntimeException(getMessage("workflowInstanceBrowse.wakeupFailed"), e);
+                    } finally {
+                        workflowInstancesTable.getDatasource().refresh();
+                    }
+                }
+            }
+
+            @Override
+            public boolean isPermitted() {
+                if (super.isPermitted() && security.isEntityOpPermitted(WorkflowInstance.class, EntityOp.UPDATE)) {
+                    Set<WorkflowInstance> selected = workflowInstancesTable.getSelected();
+                    if (!CollectionUtils.isEmpty(selected) && selected.size() == 1) {
+                        return Boolean.TRUE.equals(IterableUtils.get(selected, 0).getStalled());//wake up possible only for stalled items
+                    }
+                }
+                return false;
+            }
+        });
     }
 }
\ No newline at end of file
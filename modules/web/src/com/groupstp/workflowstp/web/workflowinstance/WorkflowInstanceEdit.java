@@ -1,5 +1,6 @@
 package com.groupstp.workflowstp.web.workflowinstance;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.groupstp.workflowstp.entity.WorkflowInstanceComment;
 import com.groupstp.workflowstp.entity.WorkflowInstanceTask;
 import com.groupstp.workflowstp.exception.WorkflowException;
@@ -21,6 +22,7 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
@@ -84,7 +86,16 @@ public class WorkflowInstanceEdit extends AbstractEditor<WorkflowInstance> {
         contextLink.setAction(new BaseAction("contextLink") {
             @Override
             public void actionPerform(Component component) {
-                final MessageDialog dialog = MessageDialog.showText(WorkflowInstanceEdit.this, getItem().getContext(), true);
+                String text = getItem().getContext();
+                if (!StringUtils.isEmpty(text) && !text.startsWith("{")) {
+                    //context stored in compact binary format, show and edit it as json
+                    try {
+                        text = new ObjectMapper().writeValueAsString(workflowService.getExecutionContext(getItem()));
+                    } catch (IOException e) {
+                        throw new RuntimeException("JSON serialization failed", e);
+                    }
+                }
+                final MessageDialog dialog = MessageDialog.showText(WorkflowInstanceEdit.this, text, true);
                 dialog.addCloseWithCommitListener(() -> getItem().setContext(dialog.getMessage()));
             }
         });
@@ -165,7 +176,9 @@ public class WorkflowInstanceEdit extends AbstractEditor<WorkflowInstance> {
     }
 
     private void initErrorLookup() {
-        final String errorText = getItem().getError();
+        //full stack trace is kept in the deduplicated error signature
+        final String errorText = getItem().getErrorRef() == null ? getItem().getError() :
+                getItem().getError() + "\n\n" + getItem().getErrorRef().getTraceText();
         if (!StringUtils.isEmpty(errorText)) {
             errorLink.setAction(new BaseAction("errorLink") {
                 @Override